@@ -98,7 +98,7 @@ public class MainActivity extends AppCompatActivity implements AppBarLayout.OnOf
         });
         swipeUpdateLayout.setOnUpdateListener(new SwipeUpdateLayout.OnUpdateListener() {
             @Override
-            public void onUpdate(int updatingPosition) {
+            public void onUpdate(final int updatingPosition) {
                 if(updatingPosition == SwipeUpdateLayout.AT_TOP) {
                     System.out.println("get latest data");
                 } else if(updatingPosition == SwipeUpdateLayout.AT_BOTTOM) {
@@ -107,7 +107,7 @@ public class MainActivity extends AppCompatActivity implements AppBarLayout.OnOf
                 swipeUpdateLayout.postDelayed(new Runnable() {
                     @Override
                     public void run() {
-                        swipeUpdateLayout.stopUpdating();
+                        swipeUpdateLayout.stopUpdating(updatingPosition);
                     }
                 }, 1000);
             }
@@ -0,0 +1,130 @@
+package org.gnayils.android.widget;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.os.Build;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.View;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import android.widget.ScrollView;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Runs on a device, records the frame times of the content moving with the indicator for
+ * each content layer policy over a deep, overdrawn hierarchy. The moving content is drawn from
+ * its layer on the RenderThread, the command issue times show the difference.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ContentLayerFrameTimeTest {
+
+    private static final int ROW_COUNT = 40;
+    private static final int ROW_DEPTH = 8;
+    private static final int UPDATE_CYCLES = 4;
+    /** Long enough for a settle to come to rest. */
+    private static final long SETTLE_DURATION = 700;
+
+    @Rule
+    public ActivityTestRule<TestActivity> mActivityRule = new ActivityTestRule<>(TestActivity.class);
+
+    private SwipeUpdateLayout mLayout;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.N);
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                final TestActivity activity = mActivityRule.getActivity();
+                final LinearLayout rows = new LinearLayout(activity);
+                rows.setOrientation(LinearLayout.VERTICAL);
+                for (int i = 0; i < ROW_COUNT; i++) {
+                    rows.addView(createRow(activity, i));
+                }
+                final ScrollView scrollView = new ScrollView(activity);
+                scrollView.addView(rows);
+                mLayout = new SwipeUpdateLayout(activity);
+                mLayout.addView(scrollView);
+                activity.setContentView(mLayout);
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+    }
+
+    @Test
+    public void layerPolicyFrameTimes() throws Exception {
+        final FrameTimeRecorder never = measure(SwipeUpdateLayout.CONTENT_LAYER_NEVER);
+        final FrameTimeRecorder auto = measure(SwipeUpdateLayout.CONTENT_LAYER_AUTO);
+        final FrameTimeRecorder always = measure(SwipeUpdateLayout.CONTENT_LAYER_ALWAYS);
+        Log.i("ContentLayerFrameTimeTest", "never: " + never);
+        Log.i("ContentLayerFrameTimeTest", "auto: " + auto);
+        Log.i("ContentLayerFrameTimeTest", "always: " + always);
+        // the numbers depend on the device, they are read from the log
+        assertTrue(never.getFrameCount() > 0 && auto.getFrameCount() > 0 && always.getFrameCount() > 0);
+    }
+
+    private FrameTimeRecorder measure(final int contentLayerPolicy) throws InterruptedException {
+        final FrameTimeRecorder recorder = new FrameTimeRecorder();
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mLayout.setContentLayerPolicy(contentLayerPolicy);
+                recorder.start(mActivityRule.getActivity().getWindow());
+            }
+        });
+        for (int i = 0; i < UPDATE_CYCLES; i++) {
+            runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    mLayout.updateTop();
+                }
+            });
+            Thread.sleep(SETTLE_DURATION);
+            runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    mLayout.stopUpdating();
+                }
+            });
+            Thread.sleep(SETTLE_DURATION);
+        }
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                recorder.stop(mActivityRule.getActivity().getWindow());
+            }
+        });
+        return recorder;
+    }
+
+    /** A row nested ROW_DEPTH levels deep, every level paints its own background. */
+    private static View createRow(Context context, int index) {
+        final TextView text = new TextView(context);
+        text.setText("row " + index);
+        text.setPadding(16, 16, 16, 16);
+        View row = text;
+        for (int depth = 0; depth < ROW_DEPTH; depth++) {
+            final FrameLayout frame = new FrameLayout(context);
+            frame.setPadding(2, 2, 2, 2);
+            frame.setBackgroundColor(depth % 2 == 0 ? Color.WHITE : Color.LTGRAY);
+            frame.addView(row);
+            row = frame;
+        }
+        return row;
+    }
+
+    private static void runOnMainSync(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+}
@@ -0,0 +1,95 @@
+package org.gnayils.android.widget;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import java.util.Arrays;
+
+/**
+ * Collects the durations of every frame a window renders from API 24 on, the metrics arrive
+ * on a thread of their own so a busy main thread does not hold them back.
+ */
+final class FrameTimeRecorder implements Window.OnFrameMetricsAvailableListener {
+
+    /** The whole frame, from the vsync to the buffer swap. */
+    static final int TOTAL = 0;
+    /** Input, animations, layout and recording the display lists on the main thread. */
+    static final int UI_THREAD = 1;
+    /** Issuing the draw commands to the GPU on the RenderThread. */
+    static final int COMMAND_ISSUE = 2;
+
+    private static final int MAX_FRAMES = 4096;
+
+    private final long[][] mDurations = new long[3][MAX_FRAMES];
+    private int mFrameCount;
+    private int mDroppedCount;
+    private HandlerThread mThread;
+
+    /** Call on the main thread once the window shows the content to measure. */
+    void start(Window window) {
+        synchronized (mDurations) {
+            mFrameCount = 0;
+            mDroppedCount = 0;
+        }
+        mThread = new HandlerThread("frame-metrics");
+        mThread.start();
+        window.addOnFrameMetricsAvailableListener(this, new Handler(mThread.getLooper()));
+    }
+
+    /** Call on the main thread. */
+    void stop(Window window) {
+        window.removeOnFrameMetricsAvailableListener(this);
+        mThread.quitSafely();
+        mThread = null;
+    }
+
+    @Override
+    public void onFrameMetricsAvailable(Window window, FrameMetrics frameMetrics, int dropCountSinceLastInvocation) {
+        synchronized (mDurations) {
+            mDroppedCount += dropCountSinceLastInvocation;
+            if (mFrameCount < MAX_FRAMES) {
+                mDurations[TOTAL][mFrameCount] = frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION);
+                mDurations[UI_THREAD][mFrameCount] = frameMetrics.getMetric(FrameMetrics.INPUT_HANDLING_DURATION)
+                        + frameMetrics.getMetric(FrameMetrics.ANIMATION_DURATION)
+                        + frameMetrics.getMetric(FrameMetrics.LAYOUT_MEASURE_DURATION)
+                        + frameMetrics.getMetric(FrameMetrics.DRAW_DURATION);
+                mDurations[COMMAND_ISSUE][mFrameCount] = frameMetrics.getMetric(FrameMetrics.COMMAND_ISSUE_DURATION);
+                mFrameCount++;
+            }
+        }
+    }
+
+    int getFrameCount() {
+        synchronized (mDurations) {
+            return mFrameCount;
+        }
+    }
+
+    /** Duration in ms of the given part of the frame the given fraction of the frames stayed within. */
+    float getPercentile(int metric, float fraction) {
+        final long[] durations;
+        synchronized (mDurations) {
+            if (mFrameCount == 0) {
+                return 0;
+            }
+            durations = Arrays.copyOf(mDurations[metric], mFrameCount);
+        }
+        Arrays.sort(durations);
+        final int index = Math.min(durations.length - 1, (int) (fraction * durations.length));
+        return durations[index] / 1000000f;
+    }
+
+    @Override
+    public String toString() {
+        final int droppedCount;
+        synchronized (mDurations) {
+            droppedCount = mDroppedCount;
+        }
+        return getFrameCount() + " frames, " + droppedCount + " unreported, total p50 " + getPercentile(TOTAL, .5f)
+                + "ms p90 " + getPercentile(TOTAL, .9f) + "ms, ui thread p50 " + getPercentile(UI_THREAD, .5f)
+                + "ms p90 " + getPercentile(UI_THREAD, .9f) + "ms, command issue p50 "
+                + getPercentile(COMMAND_ISSUE, .5f) + "ms p90 " + getPercentile(COMMAND_ISSUE, .9f) + "ms";
+    }
+}
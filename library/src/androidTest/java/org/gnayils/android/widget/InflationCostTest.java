@@ -0,0 +1,125 @@
+package org.gnayils.android.widget;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.View;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs on a device, measures what a screen creating dozens of layouts pays per instance, with
+ * the indicators created lazily and, for comparison, with the work the constructor did before:
+ * two more attribute lookups and both indicators built through the layout itself.
+ */
+@RunWith(AndroidJUnit4.class)
+public class InflationCostTest {
+
+    private static final int LAYOUT_COUNT = 48;
+    private static final int ROUNDS = 5;
+    private static final int GC_PASSES = 3;
+
+    @Rule
+    public ActivityTestRule<TestActivity> mActivityRule = new ActivityTestRule<>(TestActivity.class);
+
+    @Test
+    public void inflationCostPerInstance() throws Exception {
+        final long[] results = new long[4];
+        final int[] eagerChildCount = new int[1];
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                final Context context = mActivityRule.getActivity();
+                // loads the classes and resources both variants use
+                create(context, false);
+                for (Object layout : create(context, true)) {
+                    eagerChildCount[0] += ((SwipeUpdateLayout) layout).getChildCount();
+                }
+                results[0] = Long.MAX_VALUE;
+                results[1] = Long.MAX_VALUE;
+                for (int i = 0; i < ROUNDS; i++) {
+                    results[0] = Math.min(results[0], timeCreate(context, false));
+                    results[1] = Math.min(results[1], timeCreate(context, true));
+                }
+                results[2] = retainedHeap(context, false);
+                results[3] = retainedHeap(context, true);
+            }
+        });
+        Log.i("InflationCostTest", "per instance, lazy: " + results[0] / 1000 + "us " + results[2] + "B, eager: "
+                + results[1] / 1000 + "us " + results[3] + "B");
+        // the content and both circle views, the numbers themselves depend on the device
+        assertEquals(LAYOUT_COUNT * 3, eagerChildCount[0]);
+    }
+
+    @Test
+    public void constructionCreatesNoIndicator() throws Exception {
+        final int[] childCount = new int[1];
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                for (Object layout : create(mActivityRule.getActivity(), false)) {
+                    childCount[0] += ((SwipeUpdateLayout) layout).getChildCount();
+                }
+            }
+        });
+        // the content only, the circle views are added on the first pull or update
+        assertEquals(LAYOUT_COUNT, childCount[0]);
+    }
+
+    /** Nanoseconds per instance. */
+    private static long timeCreate(Context context, boolean eager) {
+        final long start = SystemClock.elapsedRealtimeNanos();
+        create(context, eager);
+        return (SystemClock.elapsedRealtimeNanos() - start) / LAYOUT_COUNT;
+    }
+
+    /** Bytes per instance. */
+    private static long retainedHeap(Context context, boolean eager) {
+        final long before = usedHeap();
+        final List<Object> retained = create(context, eager);
+        final long after = usedHeap();
+        // keeps the instances reachable until the heap is measured
+        return retained.isEmpty() ? 0 : (after - before) / LAYOUT_COUNT;
+    }
+
+    private static List<Object> create(Context context, boolean eager) {
+        final List<Object> created = new ArrayList<>();
+        for (int i = 0; i < LAYOUT_COUNT; i++) {
+            if (eager) {
+                // the lookups of the enabled state and the primary color, the single pass reads them now
+                context.obtainStyledAttributes(null, new int[]{android.R.attr.enabled}).recycle();
+                context.obtainStyledAttributes(null, new int[]{android.R.attr.colorPrimary}).recycle();
+            }
+            final SwipeUpdateLayout layout = new SwipeUpdateLayout(context);
+            layout.addView(new View(context));
+            if (eager) {
+                layout.ensureCircleViewsExist();
+            }
+            created.add(layout);
+        }
+        return created;
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < GC_PASSES; i++) {
+            runtime.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void runOnMainSync(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+}
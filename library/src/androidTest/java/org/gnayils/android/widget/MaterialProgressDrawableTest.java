@@ -0,0 +1,219 @@
+package org.gnayils.android.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs on a device, the drawable needs real resources and a Choreographer on the main thread.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MaterialProgressDrawableTest {
+
+    private static final int CYCLES = 10000;
+    private static final int WARM_UP_CYCLES = 1000;
+    private static final int IS_RUNNING_CALLS = 100000;
+    private static final int FRAMES_PER_CYCLE = 80;
+    private static final long MEASURE_DURATION = 2000;
+    /** Most draws per second the reduced cadence allows, its interval less the vsync slack. */
+    private static final int MAX_REDUCED_DRAWS_PER_SECOND = 36;
+
+    private MaterialProgressDrawable mDrawable;
+    private boolean mRunningWhileTimed = true;
+
+    @Before
+    public void setUp() throws Exception {
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mDrawable = new MaterialProgressDrawable(InstrumentationRegistry.getTargetContext(), null);
+            }
+        });
+    }
+
+    @Test
+    public void startStopCyclesKeepStateBounded() throws Exception {
+        final long[] results = new long[4];
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                startStop(WARM_UP_CYCLES);
+                results[0] = timeIsRunning();
+
+                Debug.startAllocCounting();
+                Debug.resetThreadAllocCount();
+                startStop(CYCLES);
+                results[1] = Debug.getThreadAllocCount();
+                Debug.stopAllocCounting();
+
+                results[2] = timeIsRunning();
+                results[3] = mDrawable.getState();
+            }
+        });
+        assertEquals(MaterialProgressDrawable.STATE_IDLE, results[3]);
+        assertFalse(mDrawable.isRunning());
+        assertTrue(mRunningWhileTimed);
+        // nothing is retained per cycle, a list growing with every start would allocate here
+        assertTrue("allocations: " + results[1], results[1] < CYCLES / 10);
+        // isRunning does not get slower with the number of cycles behind it
+        assertTrue("isRunning " + results[0] + "ns before, " + results[2] + "ns after",
+                results[2] <= results[0] * 4 + 1000000);
+    }
+
+    @Test
+    public void multiColorCycleDoesNotAllocate() throws Exception {
+        final int[] allocations = new int[1];
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mDrawable.setColorSchemeColors(Color.RED, Color.GREEN, Color.BLUE);
+                mDrawable.start();
+                // once through every color to settle lazily created state
+                spin(3);
+                Debug.startAllocCounting();
+                Debug.resetThreadAllocCount();
+                spin(3);
+                allocations[0] = Debug.getThreadAllocCount();
+                Debug.stopAllocCounting();
+                mDrawable.stop();
+            }
+        });
+        assertEquals(0, allocations[0]);
+    }
+
+    @Test
+    public void drawCallsPerFrameRatePolicy() throws Exception {
+        final float full = measureDrawsPerSecond(MaterialProgressDrawable.FRAME_RATE_FULL);
+        final float adaptive = measureDrawsPerSecond(MaterialProgressDrawable.FRAME_RATE_ADAPTIVE);
+        final float lowPower = measureDrawsPerSecond(MaterialProgressDrawable.FRAME_RATE_LOW_POWER);
+        useDrawableInPowerSaveMode();
+        final float adaptivePowerSave = measureDrawsPerSecond(MaterialProgressDrawable.FRAME_RATE_ADAPTIVE);
+        Log.i("MaterialProgressDrawableTest", "draws per second, full: " + full + ", adaptive: " + adaptive
+                + ", adaptive in battery saver: " + adaptivePowerSave + ", low power: " + lowPower);
+        assertTrue("low power " + lowPower, lowPower <= MAX_REDUCED_DRAWS_PER_SECOND);
+        // battery saver skips the full rate first second
+        assertTrue("adaptive in battery saver " + adaptivePowerSave, adaptivePowerSave <= MAX_REDUCED_DRAWS_PER_SECOND);
+        // the adaptive spinner draws every frame for its first second only
+        assertTrue("adaptive " + adaptive + ", full " + full, adaptive < full);
+        assertTrue("low power " + lowPower + ", full " + full, lowPower * 1.5f < full);
+    }
+
+    /** Battery saver can not be switched on from a test, the drawable reports it on. */
+    private void useDrawableInPowerSaveMode() {
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mDrawable = new MaterialProgressDrawable(InstrumentationRegistry.getTargetContext(), null) {
+                    @Override
+                    boolean isPowerSaveMode() {
+                        return true;
+                    }
+                };
+            }
+        });
+    }
+
+    private float measureDrawsPerSecond(final int policy) throws InterruptedException {
+        final DrawCounter counter = new DrawCounter();
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mDrawable.setFrameRatePolicy(policy);
+                mDrawable.setBounds(0, 0, mDrawable.getIntrinsicWidth(), mDrawable.getIntrinsicHeight());
+                mDrawable.setCallback(counter);
+                mDrawable.start();
+            }
+        });
+        final long start = SystemClock.uptimeMillis();
+        Thread.sleep(MEASURE_DURATION);
+        final int[] draws = new int[1];
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mDrawable.stop();
+                mDrawable.setCallback(null);
+                draws[0] = counter.mDraws;
+            }
+        });
+        return draws[0] * 1000f / (SystemClock.uptimeMillis() - start);
+    }
+
+    /** Draws the drawable once per frame it was invalidated in, like the view hosting it would. */
+    private final class DrawCounter implements Drawable.Callback, Choreographer.FrameCallback {
+
+        private final Canvas mCanvas = new Canvas(Bitmap.createBitmap(
+                mDrawable.getIntrinsicWidth(), mDrawable.getIntrinsicHeight(), Bitmap.Config.ARGB_8888));
+        private boolean mDrawPending;
+        private int mDraws;
+
+        @Override
+        public void invalidateDrawable(Drawable who) {
+            if (!mDrawPending) {
+                mDrawPending = true;
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mDrawPending = false;
+            mDrawable.draw(mCanvas);
+            mDraws++;
+        }
+
+        @Override
+        public void scheduleDrawable(Drawable who, Runnable what, long when) {
+        }
+
+        @Override
+        public void unscheduleDrawable(Drawable who, Runnable what) {
+        }
+    }
+
+    private void spin(int cycles) {
+        for (int c = 0; c < cycles; c++) {
+            for (int f = 0; f < FRAMES_PER_CYCLE; f++) {
+                mDrawable.applyCycleTime((float) f / FRAMES_PER_CYCLE);
+            }
+            mDrawable.applyCycleTime(1f);
+            mDrawable.onCycleRepeat();
+        }
+    }
+
+    private void startStop(int cycles) {
+        for (int i = 0; i < cycles; i++) {
+            mDrawable.start();
+            mDrawable.stop();
+        }
+    }
+
+    private long timeIsRunning() {
+        mDrawable.start();
+        final long start = SystemClock.elapsedRealtimeNanos();
+        boolean running = true;
+        for (int i = 0; i < IS_RUNNING_CALLS; i++) {
+            running &= mDrawable.isRunning();
+        }
+        final long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+        mDrawable.stop();
+        mRunningWhileTimed &= running;
+        return elapsed;
+    }
+
+    private static void runOnMainSync(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+}
@@ -0,0 +1,166 @@
+package org.gnayils.android.widget;
+
+import android.os.Build;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.Gravity;
+import android.view.ViewGroup;
+import android.view.animation.Animation;
+import android.view.animation.LinearInterpolator;
+import android.view.animation.Transformation;
+import android.widget.ArrayAdapter;
+import android.widget.FrameLayout;
+import android.widget.ListView;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Runs on a device, records the frame times of a long update over a list with the spinner
+ * driven by its frame callbacks and, for comparison, by a view animation on the circle view
+ * the way it was driven before.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SpinnerFrameTimeTest {
+
+    private static final long UPDATE_DURATION = 5000;
+    private static final int ITEM_COUNT = 100;
+    /** One turn of the spinner in ms, as the drawable has it. */
+    private static final long CYCLE_DURATION = 1332;
+    private static final int CIRCLE_VIEW_DIAMETER = 40;
+    private static final int CIRCLE_VIEW_BG_LIGHT = 0xFFFAFAFA;
+
+    @Rule
+    public ActivityTestRule<TestActivity> mActivityRule = new ActivityTestRule<>(TestActivity.class);
+
+    private CircleImageView mCircleView;
+    private MaterialProgressDrawable mProgressDrawable;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.N);
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                final TestActivity activity = mActivityRule.getActivity();
+                final String[] items = new String[ITEM_COUNT];
+                for (int i = 0; i < ITEM_COUNT; i++) {
+                    items[i] = "item " + i;
+                }
+                final ListView listView = new ListView(activity);
+                listView.setAdapter(new ArrayAdapter<>(activity, android.R.layout.simple_list_item_1, items));
+                mCircleView = new CircleImageView(activity, CIRCLE_VIEW_BG_LIGHT);
+                mProgressDrawable = new MaterialProgressDrawable(activity, mCircleView);
+                mProgressDrawable.setBackgroundColor(CIRCLE_VIEW_BG_LIGHT);
+                // every frame in both runs, the adaptive cadence is measured on its own
+                mProgressDrawable.setFrameRatePolicy(MaterialProgressDrawable.FRAME_RATE_FULL);
+                mCircleView.setImageDrawable(mProgressDrawable);
+                final int diameter = (int) (CIRCLE_VIEW_DIAMETER * activity.getResources().getDisplayMetrics().density);
+                final FrameLayout root = new FrameLayout(activity);
+                root.addView(listView, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                        ViewGroup.LayoutParams.MATCH_PARENT));
+                root.addView(mCircleView, new FrameLayout.LayoutParams(diameter, diameter,
+                        Gravity.TOP | Gravity.CENTER_HORIZONTAL));
+                activity.setContentView(root);
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+    }
+
+    @Test
+    public void frameCallbackSpinnerCostsLessThanViewAnimation() throws Exception {
+        final FrameTimeRecorder viewAnimation = measure(new Runnable() {
+            @Override
+            public void run() {
+                mCircleView.startAnimation(new ViewAnimationSpinner(mProgressDrawable));
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                mCircleView.clearAnimation();
+            }
+        });
+        final FrameTimeRecorder frameCallback = measure(new Runnable() {
+            @Override
+            public void run() {
+                mProgressDrawable.start();
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                mProgressDrawable.stop();
+            }
+        });
+        Log.i("SpinnerFrameTimeTest", UPDATE_DURATION + "ms update, view animation: " + viewAnimation);
+        Log.i("SpinnerFrameTimeTest", UPDATE_DURATION + "ms update, frame callback: " + frameCallback);
+        assertTrue(viewAnimation.getFrameCount() > 0 && frameCallback.getFrameCount() > 0);
+        // nothing above the circle view is animated or recorded again in every frame
+        assertTrue("frame callback " + frameCallback + ", view animation " + viewAnimation,
+                frameCallback.getPercentile(FrameTimeRecorder.UI_THREAD, .5f)
+                        <= viewAnimation.getPercentile(FrameTimeRecorder.UI_THREAD, .5f));
+    }
+
+    private FrameTimeRecorder measure(final Runnable start, final Runnable stop) throws InterruptedException {
+        final FrameTimeRecorder recorder = new FrameTimeRecorder();
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                recorder.start(mActivityRule.getActivity().getWindow());
+                start.run();
+            }
+        });
+        Thread.sleep(UPDATE_DURATION);
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                stop.run();
+                recorder.stop(mActivityRule.getActivity().getWindow());
+            }
+        });
+        return recorder;
+    }
+
+    /** The spinner as the circle view animated it, the drawable only applies the cycle. */
+    private static final class ViewAnimationSpinner extends Animation implements Animation.AnimationListener {
+
+        private final MaterialProgressDrawable mDrawable;
+
+        ViewAnimationSpinner(MaterialProgressDrawable drawable) {
+            mDrawable = drawable;
+            setDuration(CYCLE_DURATION);
+            setRepeatCount(Animation.INFINITE);
+            setRepeatMode(Animation.RESTART);
+            setInterpolator(new LinearInterpolator());
+            setAnimationListener(this);
+        }
+
+        @Override
+        protected void applyTransformation(float interpolatedTime, Transformation t) {
+            mDrawable.applyCycleTime(interpolatedTime);
+        }
+
+        @Override
+        public void onAnimationStart(Animation animation) {
+        }
+
+        @Override
+        public void onAnimationEnd(Animation animation) {
+        }
+
+        @Override
+        public void onAnimationRepeat(Animation animation) {
+            mDrawable.onCycleRepeat();
+        }
+    }
+
+    private static void runOnMainSync(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+}
@@ -0,0 +1,111 @@
+package org.gnayils.android.widget;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.FrameMetrics;
+import android.view.View;
+import android.view.Window;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Runs on a device, stalls the main thread while an update spins and counts the frames the
+ * window still renders, reported on a thread of their own.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SpinnerRenderThreadTest {
+
+    private static final long STALL_DURATION = 500;
+    private static final long SPIN_UP_DURATION = 300;
+    /** A third of the frames of the stall at 60Hz. */
+    private static final int MIN_FRAMES_DURING_STALL = 10;
+    /** The frame already queued when the stall begins may still come through. */
+    private static final int MAX_FRAMES_DURING_MAIN_THREAD_STALL = 2;
+
+    @Rule
+    public ActivityTestRule<TestActivity> mActivityRule = new ActivityTestRule<>(TestActivity.class);
+
+    private SwipeUpdateLayout mLayout;
+
+    @Before
+    public void setUp() throws Exception {
+        // frame metrics from API 24, the vector animation leaves the main thread from API 25
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.N_MR1);
+    }
+
+    @Test
+    public void renderThreadSpinnerKeepsTurningThroughStall() throws Exception {
+        final int frames = countFramesDuringStall(true);
+        Log.i("SpinnerRenderThreadTest", "frames during a " + STALL_DURATION + "ms stall: " + frames);
+        assertTrue("frames: " + frames, frames >= MIN_FRAMES_DURING_STALL);
+    }
+
+    @Test
+    public void mainThreadSpinnerStopsDuringStall() throws Exception {
+        final int frames = countFramesDuringStall(false);
+        assertTrue("frames: " + frames, frames <= MAX_FRAMES_DURING_MAIN_THREAD_STALL);
+    }
+
+    private int countFramesDuringStall(final boolean renderThreadAnimations) throws InterruptedException {
+        final HandlerThread metricsThread = new HandlerThread("frame-metrics");
+        metricsThread.start();
+        final AtomicInteger frames = new AtomicInteger();
+        final Window.OnFrameMetricsAvailableListener listener = new Window.OnFrameMetricsAvailableListener() {
+            @Override
+            public void onFrameMetricsAvailable(Window window, FrameMetrics frameMetrics, int dropCountSinceLastInvocation) {
+                frames.addAndGet(1 + dropCountSinceLastInvocation);
+            }
+        };
+        final Window window = mActivityRule.getActivity().getWindow();
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                final TestActivity activity = mActivityRule.getActivity();
+                mLayout = new SwipeUpdateLayout(activity);
+                mLayout.addView(new View(activity));
+                mLayout.setRenderThreadAnimations(renderThreadAnimations);
+                activity.setContentView(mLayout);
+                // the indicator is out right away, only the spinner moves from here on
+                mLayout.updateTop(false);
+                window.addOnFrameMetricsAvailableListener(listener, new Handler(metricsThread.getLooper()));
+            }
+        });
+        Thread.sleep(SPIN_UP_DURATION);
+        final int[] framesDuringStall = new int[1];
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                final int before = frames.get();
+                SystemClock.sleep(STALL_DURATION);
+                framesDuringStall[0] = frames.get() - before;
+            }
+        });
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                window.removeOnFrameMetricsAvailableListener(listener);
+                mLayout.stopUpdating();
+            }
+        });
+        metricsThread.quitSafely();
+        return framesDuringStall[0];
+    }
+
+    private static void runOnMainSync(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+}
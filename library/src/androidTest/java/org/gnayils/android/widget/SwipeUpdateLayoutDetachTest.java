@@ -0,0 +1,145 @@
+package org.gnayils.android.widget;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs on a device, detaching needs a window the layout was attached to.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SwipeUpdateLayoutDetachTest {
+
+    private static final long FRAMES_MS = 300;
+    private static final int GC_ATTEMPTS = 10;
+
+    @Rule
+    public ActivityTestRule<TestActivity> mActivityRule = new ActivityTestRule<>(TestActivity.class);
+
+    private SwipeUpdateLayout mLayout;
+    private final int[] mUpdates = new int[1];
+
+    @Test
+    public void detachDuringSettleDefersTheUpdateToReattach() throws Exception {
+        attach();
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mLayout.updateTop(true);
+                // detached before the first frame of the settle
+                detach();
+            }
+        });
+        waitFrames();
+        assertEquals(0, mUpdates[0]);
+        assertTrue(mLayout.isUpdating(SwipeUpdateLayout.AT_TOP));
+
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mActivityRule.getActivity().setContentView(mLayout);
+            }
+        });
+        waitFrames();
+        assertEquals(1, mUpdates[0]);
+    }
+
+    @Test
+    public void offScreenLayoutDefersTheUpdateUntilBackOnScreen() throws Exception {
+        attach();
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                // attached and visible, but next to the screen like a page of a pager
+                mLayout.setTranslationX(mLayout.getWidth());
+                mLayout.updateTop(true);
+            }
+        });
+        waitFrames();
+        assertEquals(0, mUpdates[0]);
+
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mLayout.setTranslationX(0);
+            }
+        });
+        waitFrames();
+        assertEquals(1, mUpdates[0]);
+    }
+
+    @Test
+    public void detachedLayoutIsNotRetained() throws Exception {
+        attach();
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                // the low power cadence keeps a delayed frame callback pending between frames
+                mLayout.setSpinnerFrameRate(SwipeUpdateLayout.SPINNER_FRAME_RATE_LOW_POWER);
+                mLayout.updateTop(false);
+                mLayout.postProgress(SwipeUpdateLayout.AT_BOTTOM, .5f);
+            }
+        });
+        waitFrames();
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                detach();
+                // posted after the detach, the drain must not hold on to the layout either
+                mLayout.postUpdate(SwipeUpdateLayout.AT_TOP);
+            }
+        });
+        waitFrames();
+        // a frame callback, message or runnable left behind would keep the layout and its activity reachable
+        final WeakReference<SwipeUpdateLayout> layout = new WeakReference<>(mLayout);
+        mLayout = null;
+        for (int i = 0; i < GC_ATTEMPTS && layout.get() != null; i++) {
+            Runtime.getRuntime().gc();
+            System.runFinalization();
+            Thread.sleep(100);
+        }
+        assertNull(layout.get());
+    }
+
+    private void attach() {
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                final TestActivity activity = mActivityRule.getActivity();
+                mLayout = new SwipeUpdateLayout(activity);
+                mLayout.addView(new View(activity));
+                mLayout.setOnUpdateListener(new SwipeUpdateLayout.OnUpdateListener() {
+                    @Override
+                    public void onUpdate(int updatingPosition) {
+                        mUpdates[0]++;
+                    }
+                });
+                activity.setContentView(mLayout);
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+    }
+
+    private void detach() {
+        final TestActivity activity = mActivityRule.getActivity();
+        activity.setContentView(new View(activity));
+    }
+
+    private static void waitFrames() throws InterruptedException {
+        Thread.sleep(FRAMES_MS);
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+    }
+
+    private static void runOnMainSync(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+}
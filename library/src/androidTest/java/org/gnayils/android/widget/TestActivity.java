@@ -0,0 +1,9 @@
+package org.gnayils.android.widget;
+
+import android.app.Activity;
+
+/**
+ * Empty host window for the tests that need the layout attached.
+ */
+public class TestActivity extends Activity {
+}
@@ -0,0 +1,72 @@
+package org.gnayils.android.widget;
+
+/**
+ * A critically damped spring pulling a value towards a target. Every step evaluates the
+ * closed form solution x(t) = (x0 + (v0 + w * x0) * t) * e^(-w * t), so the result does not
+ * depend on the frame rate and stepping never allocates.
+ */
+final class CriticallyDampedSpring {
+
+    /** Undamped angular frequency in rad/s, settles within ~1% of the distance in ~300ms. */
+    static final float DEFAULT_ANGULAR_FREQUENCY = 22f;
+
+    private final float mAngularFrequency;
+    private float mPosition;
+    private float mVelocity;
+    private float mTarget;
+
+    CriticallyDampedSpring(float angularFrequency) {
+        mAngularFrequency = angularFrequency;
+    }
+
+    /**
+     * @param position Current value.
+     * @param velocity Current velocity in units per second.
+     * @param target Value the spring comes to rest at.
+     */
+    void set(float position, float velocity, float target) {
+        mPosition = position;
+        mVelocity = velocity;
+        mTarget = target;
+    }
+
+    /**
+     * Advance the spring.
+     *
+     * @param seconds Time elapsed since the last step.
+     */
+    void step(float seconds) {
+        if (seconds <= 0) {
+            return;
+        }
+        final float w = mAngularFrequency;
+        final float x0 = mPosition - mTarget;
+        final float c = mVelocity + w * x0;
+        final float decay = (float) Math.exp(-w * seconds);
+        final float x = (x0 + c * seconds) * decay;
+        mPosition = mTarget + x;
+        mVelocity = (c - w * (x0 + c * seconds)) * decay;
+    }
+
+    /**
+     * @param positionTolerance Maximum distance from the target.
+     * @param velocityTolerance Maximum speed in units per second.
+     * @return true if the spring is close enough to the target to be snapped onto it.
+     */
+    boolean isAtRest(float positionTolerance, float velocityTolerance) {
+        return Math.abs(mPosition - mTarget) <= positionTolerance
+                && Math.abs(mVelocity) <= velocityTolerance;
+    }
+
+    float getPosition() {
+        return mPosition;
+    }
+
+    float getVelocity() {
+        return mVelocity;
+    }
+
+    float getTarget() {
+        return mTarget;
+    }
+}
@@ -0,0 +1,90 @@
+package org.gnayils.android.widget;
+
+/**
+ * Extrapolates the position of a dragging pointer from its recent samples with a least
+ * squares line fit, so a drag can be rendered where the finger will be when the frame is
+ * shown instead of where it was when the last event arrived.
+ */
+final class DragPredictor {
+
+    private static final int MAX_SAMPLES = 8;
+    /** Samples older than this relative to the latest one do not take part in the fit. */
+    private static final long SAMPLE_HORIZON_MS = 64;
+    /** Never extrapolate further than this past the latest sample. */
+    private static final long MAX_PREDICTION_MS = 34;
+
+    private final long[] mTimes = new long[MAX_SAMPLES];
+    private final float[] mPositions = new float[MAX_SAMPLES];
+    private int mLatest = -1;
+    private int mCount;
+
+    void reset() {
+        mLatest = -1;
+        mCount = 0;
+    }
+
+    /**
+     * @param timeMs Event time of the sample, in the {@link android.os.SystemClock#uptimeMillis()} time base.
+     * @param position Position of the pointer.
+     */
+    void addSample(long timeMs, float position) {
+        if (mCount > 0 && timeMs <= mTimes[mLatest]) {
+            // duplicate or out of order sample, keep the newest position only
+            mPositions[mLatest] = position;
+            return;
+        }
+        mLatest = (mLatest + 1) % MAX_SAMPLES;
+        mTimes[mLatest] = timeMs;
+        mPositions[mLatest] = position;
+        if (mCount < MAX_SAMPLES) {
+            mCount++;
+        }
+    }
+
+    /**
+     * @param timeMs Time to predict the position at.
+     * @param maxOffset Upper bound of the returned offset in both directions.
+     * @return Offset of the predicted position from the latest sample, 0 if there are not
+     *            enough recent samples to fit a line.
+     */
+    float predictOffset(long timeMs, float maxOffset) {
+        if (mCount < 2) {
+            return 0;
+        }
+        final long latestTime = mTimes[mLatest];
+        // fit relative to the latest sample to keep the sums small
+        float sumT = 0;
+        float sumY = 0;
+        int n = 0;
+        for (int i = 0; i < mCount; i++) {
+            final int index = (mLatest - i + MAX_SAMPLES) % MAX_SAMPLES;
+            final long age = latestTime - mTimes[index];
+            if (age > SAMPLE_HORIZON_MS) {
+                break;
+            }
+            sumT -= age;
+            sumY += mPositions[index];
+            n++;
+        }
+        if (n < 2) {
+            return 0;
+        }
+        final float meanT = sumT / n;
+        final float meanY = sumY / n;
+        float covariance = 0;
+        float variance = 0;
+        for (int i = 0; i < n; i++) {
+            final int index = (mLatest - i + MAX_SAMPLES) % MAX_SAMPLES;
+            final float t = (mTimes[index] - latestTime) - meanT;
+            covariance += t * (mPositions[index] - meanY);
+            variance += t * t;
+        }
+        if (variance == 0) {
+            return 0;
+        }
+        final float velocity = covariance / variance;
+        final long ahead = Math.min(MAX_PREDICTION_MS, Math.max(0, timeMs - latestTime));
+        final float offset = velocity * ahead;
+        return Math.max(-maxOffset, Math.min(maxOffset, offset));
+    }
+}
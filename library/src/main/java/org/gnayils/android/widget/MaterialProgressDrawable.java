@@ -28,19 +28,22 @@ import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.drawable.Animatable;
 import android.graphics.drawable.Drawable;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.support.annotation.AnyThread;
+import android.support.annotation.FloatRange;
 import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
 import android.support.v4.view.animation.FastOutSlowInInterpolator;
 import android.util.DisplayMetrics;
+import android.view.Choreographer;
 import android.view.View;
-import android.view.animation.Animation;
 import android.view.animation.Interpolator;
-import android.view.animation.LinearInterpolator;
-import android.view.animation.Transformation;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import android.graphics.Paint.Style;
 
@@ -48,7 +51,6 @@ import android.graphics.Paint.Style;
  * Fancy progress indicator for Material theme.
  */
 public class MaterialProgressDrawable extends Drawable implements Animatable {
-    private static final Interpolator LINEAR_INTERPOLATOR = new LinearInterpolator();
     static final Interpolator MATERIAL_INTERPOLATOR = new FastOutSlowInInterpolator();
 
     private static final float FULL_ROTATION = 1080.0f;
@@ -64,13 +66,13 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
 
     // Maps to ProgressBar default style
     private static final int CIRCLE_DIAMETER = 40;
-    private static final float CENTER_RADIUS = 8.75f; //should add up to 10 when + stroke_width
-    private static final float STROKE_WIDTH = 2.5f;
+    static final float CENTER_RADIUS = 8.75f; //should add up to 10 when + stroke_width
+    static final float STROKE_WIDTH = 2.5f;
 
     // Maps to ProgressBar.Large style
     private static final int CIRCLE_DIAMETER_LARGE = 56;
-    private static final float CENTER_RADIUS_LARGE = 12.5f;
-    private static final float STROKE_WIDTH_LARGE = 3f;
+    static final float CENTER_RADIUS_LARGE = 12.5f;
+    static final float STROKE_WIDTH_LARGE = 3f;
 
     private static final int[] COLORS = new int[] {
             Color.BLACK
@@ -89,8 +91,53 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
 
     /** The number of points in the progress "star". */
     private static final float NUM_POINTS = 5f;
-    /** The list of animators operating on this drawable. */
-    private final ArrayList<Animation> mAnimators = new ArrayList<Animation>();
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({STATE_IDLE, STATE_FINISHING, STATE_SPINNING, STATE_DETERMINATE})
+    @interface SpinnerState {}
+
+    /** Nothing is animating, the ring shows whatever trim was set last. */
+    static final int STATE_IDLE = 0;
+    /** Closing the arc left over from the swipe gesture before spinning. */
+    static final int STATE_FINISHING = 1;
+    /** Running the indeterminate spinner cycle. */
+    static final int STATE_SPINNING = 2;
+    /** Drawing an arc that follows the progress published with {@link #setProgress(float)}. */
+    static final int STATE_DETERMINATE = 3;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({FRAME_RATE_FULL, FRAME_RATE_ADAPTIVE, FRAME_RATE_LOW_POWER})
+    public @interface FrameRatePolicy {}
+
+    /** Draw the spinner on every frame of the display. */
+    public static final int FRAME_RATE_FULL = 0;
+    /**
+     * Draw the spinner on every frame while it closes the arc of the swipe and shortly
+     * after it started, at the reduced cadence after that. Battery saver reduces the
+     * cadence right away.
+     */
+    public static final int FRAME_RATE_ADAPTIVE = 1;
+    /** Always draw the spinner at the reduced cadence. */
+    public static final int FRAME_RATE_LOW_POWER = 2;
+
+    /** Time in ms the adaptive policy draws the spinner on every frame after it started. */
+    private static final long FULL_FRAME_RATE_DURATION = 1000;
+    /** Interval in ms between spinner frames at the reduced cadence, ~30fps. */
+    private static final long REDUCED_FRAME_INTERVAL = 33;
+    /** Tolerance in ms for vsync jitter, so a frame due at the interval is not skipped. */
+    private static final long REDUCED_FRAME_SLACK = 4;
+
+    @FrameRatePolicy
+    private int mFrameRatePolicy = FRAME_RATE_FULL;
+    private final PowerManager mPowerManager;
+    /** Whether battery saver was on when the spinner started or its current cycle began. */
+    private boolean mPowerSaveMode;
+    /** Frame time the spinner started or resumed at, 0 until the first frame. */
+    private long mSpinStartNanos;
+
+    /** Current spinner state, replaces tracking every started animator. */
+    @SpinnerState
+    private int mState = STATE_IDLE;
 
     /** The indicator ring, used to manage animation state. */
     private final Ring mRing;
@@ -108,23 +155,54 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
     private static final int ARROW_HEIGHT_LARGE = 6;
     private static final float MAX_PROGRESS_ARC = .8f;
 
+    /** Number of segments a spinner cycle is sampled into for the keyframe table. */
+    private static final int KEYFRAME_SEGMENTS = 128;
+    /** Start and end trim offsets per keyframe, one table per progress drawable size. */
+    private static final float[][] sKeyframes = new float[2][];
+
     private Resources mResources;
-    private View mParent;
-    private Animation mAnimation;
+    private Choreographer mChoreographer;
+    /** Frame time the current spinner cycle started at, 0 until the first frame. */
+    private long mCycleStartNanos;
+    /** Duration of the current spinner cycle in milliseconds. */
+    private long mCycleDuration;
     float mRotationCount;
     private double mWidth;
     private double mHeight;
     boolean mFinishing;
+    @ProgressDrawableSize
+    private int mSize = DEFAULT;
+    /** Keyframe table of the current size, null when the spinner math runs every frame. */
+    private float[] mKeyframes;
+
+    /** Rate in 1/s at which the determinate arc closes the distance to the published progress. */
+    private static final float PROGRESS_CATCH_UP_RATE = 12f;
+    /** Distance to the published progress below which the arc snaps onto it. */
+    private static final float PROGRESS_SNAP_DISTANCE = .001f;
+    /** Latest published progress as float bits, written from any thread, sampled once per frame. */
+    private final AtomicInteger mPublishedProgress = new AtomicInteger(Float.floatToIntBits(0f));
+    /** Set while the determinate arc has caught up and no frame callback is pending. */
+    private final AtomicBoolean mProgressParked = new AtomicBoolean();
+    private float mDisplayedProgress;
+    private long mLastProgressFrameNanos;
+
+    /** Set while the host is not visible, the state is kept but no frame callback is posted. */
+    private boolean mPaused;
+    /** Time {@link #pause()} was called at, in the {@link System#nanoTime()} time base. */
+    private long mPauseTimeNanos;
 
+    /**
+     * @param parent No longer used, the spinner is driven by frame callbacks
+     *            and invalidates the drawable bounds only. Kept for source compatibility.
+     */
     public MaterialProgressDrawable(Context context, View parent) {
-        mParent = parent;
         mResources = context.getResources();
+        mPowerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
 
         mRing = new Ring(mCallback);
         mRing.setColors(COLORS);
 
         updateSizes(DEFAULT);
-        setupAnimators();
     }
 
     private void setSizeParameters(double progressCircleWidth, double progressCircleHeight,
@@ -150,6 +228,10 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
      *            {@link android.support.v4.widget.MaterialProgressDrawable.DEFAULT}
      */
     public void updateSizes(@ProgressDrawableSize int size) {
+        mSize = size;
+        if (mKeyframes != null) {
+            mKeyframes = getKeyframes(size);
+        }
         if (size == LARGE) {
             setSizeParameters(CIRCLE_DIAMETER_LARGE, CIRCLE_DIAMETER_LARGE, CENTER_RADIUS_LARGE,
                     STROKE_WIDTH_LARGE, ARROW_WIDTH_LARGE, ARROW_HEIGHT_LARGE);
@@ -159,6 +241,92 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
         }
     }
 
+    /**
+     * Use a precomputed keyframe table for the start and end trim of the
+     * spinner cycle instead of evaluating the interpolators every frame.
+     *
+     * @param useKeyframes Set to true to look up the trim from the table.
+     */
+    public void setUseKeyframes(boolean useKeyframes) {
+        mKeyframes = useKeyframes ? getKeyframes(mSize) : null;
+    }
+
+    static float[] getKeyframes(@ProgressDrawableSize int size) {
+        synchronized (sKeyframes) {
+            float[] keyframes = sKeyframes[size];
+            if (keyframes == null) {
+                keyframes = size == LARGE
+                        ? buildKeyframes(STROKE_WIDTH_LARGE, CENTER_RADIUS_LARGE)
+                        : buildKeyframes(STROKE_WIDTH, CENTER_RADIUS);
+                sKeyframes[size] = keyframes;
+            }
+            return keyframes;
+        }
+    }
+
+    /**
+     * Sample the start and end trim offsets of a single spinner cycle. The
+     * minimum arc only depends on the ratio of stroke width and radius, so the
+     * table does not depend on the screen density.
+     */
+    static float[] buildKeyframes(float strokeWidth, float centerRadius) {
+        final float arc = getTrimArc(strokeWidth, centerRadius);
+        final float[] keyframes = new float[(KEYFRAME_SEGMENTS + 1) * 2];
+        for (int i = 0; i <= KEYFRAME_SEGMENTS; i++) {
+            final float time = (float) i / KEYFRAME_SEGMENTS;
+            keyframes[i * 2] = getStartTrimOffset(time, arc);
+            keyframes[i * 2 + 1] = getEndTrimOffset(time, arc);
+        }
+        return keyframes;
+    }
+
+    /**
+     * @return Distance the trims travel in a spinner cycle, the largest arc
+     *            less the arc matching the stroke width.
+     */
+    static float getTrimArc(float strokeWidth, float centerRadius) {
+        return MAX_PROGRESS_ARC - (float) Math.toRadians(strokeWidth / (2 * Math.PI * centerRadius));
+    }
+
+    /**
+     * @return Offset of the start trim from its value at the beginning of the
+     *            cycle. The start trim only moves in the first 50% of a cycle.
+     */
+    static float getStartTrimOffset(float interpolatedTime, float arc) {
+        if (interpolatedTime > START_TRIM_DURATION_OFFSET) {
+            return arc;
+        }
+        // scale the interpolatedTime so that the full
+        // transformation from 0 - 1 takes place in the
+        // remaining time
+        return arc * MATERIAL_INTERPOLATOR.getInterpolation(
+                interpolatedTime / (1.0f - START_TRIM_DURATION_OFFSET));
+    }
+
+    /**
+     * @return Offset of the end trim from its value at the beginning of the
+     *            cycle. The end trim starts moving after 50% of a cycle.
+     */
+    static float getEndTrimOffset(float interpolatedTime, float arc) {
+        if (interpolatedTime <= END_TRIM_START_DELAY_OFFSET) {
+            return 0;
+        }
+        return arc * MATERIAL_INTERPOLATOR.getInterpolation(
+                (interpolatedTime - START_TRIM_DURATION_OFFSET) / (1.0f - START_TRIM_DURATION_OFFSET));
+    }
+
+    /**
+     * @param column 0 for the start trim offset, 1 for the end trim offset.
+     * @return The offset interpolated between the two nearest keyframes.
+     */
+    static float lookupKeyframe(float[] keyframes, float interpolatedTime, int column) {
+        final float position = interpolatedTime * KEYFRAME_SEGMENTS;
+        final int index = Math.min((int) position, KEYFRAME_SEGMENTS - 1);
+        final float fraction = position - index;
+        final int offset = index * 2 + column;
+        return keyframes[offset] + (keyframes[offset + 2] - keyframes[offset]) * fraction;
+    }
+
     /**
      * @param show Set to true to display the arrowhead on the progress spinner.
      */
@@ -263,43 +431,207 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
 
     @Override
     public boolean isRunning() {
-        final ArrayList<Animation> animators = mAnimators;
-        final int N = animators.size();
-        for (int i = 0; i < N; i++) {
-            final Animation animator = animators.get(i);
-            if (animator.hasStarted() && !animator.hasEnded()) {
-                return true;
-            }
-        }
-        return false;
+        return mState == STATE_FINISHING || mState == STATE_SPINNING || mState == STATE_DETERMINATE;
+    }
+
+    @SpinnerState
+    int getState() {
+        return mState;
     }
 
     @Override
     public void start() {
-        mAnimation.reset();
+        if (mChoreographer == null) {
+            mChoreographer = Choreographer.getInstance();
+        }
+        mChoreographer.removeFrameCallback(mFrameCallback);
         mRing.storeOriginals();
         // Already showing some part of the ring
         if (mRing.getEndTrim() != mRing.getStartTrim()) {
             mFinishing = true;
-            mAnimation.setDuration(ANIMATION_DURATION / 2);
-            mParent.startAnimation(mAnimation);
+            mState = STATE_FINISHING;
+            mCycleDuration = ANIMATION_DURATION / 2;
         } else {
+            mFinishing = false;
+            mState = STATE_SPINNING;
             mRing.setColorIndex(0);
             mRing.resetOriginals();
-            mAnimation.setDuration(ANIMATION_DURATION);
-            mParent.startAnimation(mAnimation);
+            mCycleDuration = ANIMATION_DURATION;
+        }
+        mRotationCount = 0;
+        mCycleStartNanos = 0;
+        mSpinStartNanos = 0;
+        refreshPowerSaveMode();
+        mProgressParked.set(false);
+        if (!mPaused) {
+            mChoreographer.postFrameCallback(mFrameCallback);
+        }
+    }
+
+    /**
+     * Replace the spinner with an arc growing clockwise from the top to the published
+     * progress. Must be called on the main thread, the progress itself can be published
+     * from any thread.
+     */
+    public void startDeterminate() {
+        if (mChoreographer == null) {
+            mChoreographer = Choreographer.getInstance();
+        }
+        mChoreographer.removeFrameCallback(mFrameCallback);
+        mFinishing = false;
+        mState = STATE_DETERMINATE;
+        setRotation(0);
+        mRing.setShowArrow(false);
+        mRing.setColorIndex(0);
+        mRing.setRotation(-.25f);
+        mRing.setStartTrim(0f);
+        mRing.setEndTrim(0f);
+        mDisplayedProgress = 0f;
+        mLastProgressFrameNanos = 0;
+        mProgressParked.set(false);
+        if (!mPaused) {
+            mChoreographer.postFrameCallback(mFrameCallback);
+        }
+    }
+
+    /**
+     * Publish the progress shown by the determinate arc. Lock free and allocation free,
+     * the last value published before a frame wins.
+     *
+     * @param progress Progress from [0..1]
+     */
+    @AnyThread
+    public void setProgress(@FloatRange(from = 0, to = 1) float progress) {
+        mPublishedProgress.set(Float.floatToIntBits(Math.max(0f, Math.min(1f, progress))));
+        if (mProgressParked.compareAndSet(true, false)) {
+            // Choreographer accepts callbacks from any thread and runs them on its own
+            mChoreographer.postFrameCallback(mFrameCallback);
+        }
+    }
+
+    /**
+     * Move the determinate arc towards the published progress, the ring is left untouched,
+     * and so not invalidated, once it caught up.
+     */
+    private void applyProgressFrame(long frameTimeNanos) {
+        final float progress = Float.intBitsToFloat(mPublishedProgress.get());
+        if (Math.abs(progress - mDisplayedProgress) <= PROGRESS_SNAP_DISTANCE) {
+            if (mDisplayedProgress != progress) {
+                mDisplayedProgress = progress;
+                mRing.setEndTrim(progress);
+            }
+            mLastProgressFrameNanos = 0;
+            mProgressParked.set(true);
+            // a value published after the read above saw the callback still pending
+            if (Float.intBitsToFloat(mPublishedProgress.get()) != progress
+                    && mProgressParked.compareAndSet(true, false)) {
+                mChoreographer.postFrameCallback(mFrameCallback);
+            }
+            return;
+        }
+        final float elapsed = mLastProgressFrameNanos == 0
+                ? 1f / 60 : (frameTimeNanos - mLastProgressFrameNanos) / 1000000000f;
+        mLastProgressFrameNanos = frameTimeNanos;
+        mDisplayedProgress += (progress - mDisplayedProgress)
+                * (1f - (float) Math.exp(-PROGRESS_CATCH_UP_RATE * elapsed));
+        mRing.setEndTrim(mDisplayedProgress);
+        mChoreographer.postFrameCallback(mFrameCallback);
+    }
+
+    /**
+     * Stop posting frame callbacks without leaving the current state, for a host that is
+     * detached or not visible. A spinner started while paused waits for {@link #resume()}.
+     */
+    public void pause() {
+        if (mPaused) {
+            return;
+        }
+        mPaused = true;
+        mPauseTimeNanos = System.nanoTime();
+        // a parked arc must not be re-armed by setProgress while paused
+        mProgressParked.set(false);
+        if (mChoreographer != null) {
+            mChoreographer.removeFrameCallback(mFrameCallback);
+        }
+    }
+
+    /**
+     * Continue the spinner from the phase it was paused at, or let the determinate arc
+     * catch up with the progress published in the meantime.
+     */
+    public void resume() {
+        if (!mPaused) {
+            return;
+        }
+        mPaused = false;
+        if (!isRunning()) {
+            return;
+        }
+        if (mCycleStartNanos != 0) {
+            // shift the cycle by the time spent paused so it does not jump ahead
+            mCycleStartNanos += System.nanoTime() - mPauseTimeNanos;
         }
-        mAnimators.add(mAnimation);
+        mLastProgressFrameNanos = 0;
+        // becoming visible again is a transition, drawn at full rate for a moment
+        mSpinStartNanos = 0;
+        mChoreographer.postFrameCallback(mFrameCallback);
+    }
+
+    boolean isPaused() {
+        return mPaused;
     }
 
     @Override
     public void stop() {
-        mParent.clearAnimation();
+        // set first, a frame already posted from another thread by setProgress finds nothing to do
+        mState = STATE_IDLE;
+        mProgressParked.set(false);
+        if (mChoreographer != null) {
+            mChoreographer.removeFrameCallback(mFrameCallback);
+        }
+        mFinishing = false;
         setRotation(0);
         mRing.setShowArrow(false);
         mRing.setColorIndex(0);
         mRing.resetOriginals();
-        mAnimators.add(mAnimation);
+    }
+
+    /**
+     * Set how often the indeterminate spinner is drawn. The determinate arc only draws
+     * while it catches up with the progress and is not affected.
+     *
+     * @param policy One of {@link #FRAME_RATE_FULL}, {@link #FRAME_RATE_ADAPTIVE} or
+     *            {@link #FRAME_RATE_LOW_POWER}
+     */
+    public void setFrameRatePolicy(@FrameRatePolicy int policy) {
+        mFrameRatePolicy = policy;
+    }
+
+    @FrameRatePolicy
+    public int getFrameRatePolicy() {
+        return mFrameRatePolicy;
+    }
+
+    /**
+     * Battery saver can be switched while the spinner runs, it is read again once per cycle
+     * instead of on every frame, it is a call into the system server.
+     */
+    private void refreshPowerSaveMode() {
+        mPowerSaveMode = mFrameRatePolicy == FRAME_RATE_ADAPTIVE && isPowerSaveMode();
+    }
+
+    boolean isPowerSaveMode() {
+        return mPowerManager != null && mPowerManager.isPowerSaveMode();
+    }
+
+    private boolean isFrameRateReduced(long frameTimeNanos) {
+        if (mState != STATE_SPINNING || mFrameRatePolicy == FRAME_RATE_FULL) {
+            return false;
+        }
+        if (mFrameRatePolicy == FRAME_RATE_LOW_POWER || mPowerSaveMode) {
+            return true;
+        }
+        return (frameTimeNanos - mSpinStartNanos) / 1000000L >= FULL_FRAME_RATE_DURATION;
     }
 
     float getMinProgressArc(Ring ring) {
@@ -308,38 +640,35 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
     }
 
     // Adapted from ArgbEvaluator.java
-    private int evaluateColorChange(float fraction, int startValue, int endValue) {
-        int startInt = (Integer) startValue;
-        int startA = (startInt >> 24) & 0xff;
-        int startR = (startInt >> 16) & 0xff;
-        int startG = (startInt >> 8) & 0xff;
-        int startB = startInt & 0xff;
-
-        int endInt = (Integer) endValue;
-        int endA = (endInt >> 24) & 0xff;
-        int endR = (endInt >> 16) & 0xff;
-        int endG = (endInt >> 8) & 0xff;
-        int endB = endInt & 0xff;
-
-        return (int) ((startA + (int) (fraction * (endA - startA))) << 24)
-                | (int) ((startR + (int) (fraction * (endR - startR))) << 16)
-                | (int) ((startG + (int) (fraction * (endG - startG))) << 8)
-                | (int) ((startB + (int) (fraction * (endB - startB))));
+    static int evaluateColorChange(float fraction, int startValue, int endValue) {
+        int startA = (startValue >> 24) & 0xff;
+        int startR = (startValue >> 16) & 0xff;
+        int startG = (startValue >> 8) & 0xff;
+        int startB = startValue & 0xff;
+
+        int endA = (endValue >> 24) & 0xff;
+        int endR = (endValue >> 16) & 0xff;
+        int endG = (endValue >> 8) & 0xff;
+        int endB = endValue & 0xff;
+
+        return ((startA + (int) (fraction * (endA - startA))) << 24)
+                | ((startR + (int) (fraction * (endR - startR))) << 16)
+                | ((startG + (int) (fraction * (endG - startG))) << 8)
+                | ((startB + (int) (fraction * (endB - startB))));
     }
 
     /**
      * Update the ring color if this is within the last 25% of the animation.
      * The new ring color will be a translation from the starting ring color to
-     * the next color.
+     * the next color, looked up from the ramp precomputed by the ring.
      */
     void updateRingColor(float interpolatedTime, Ring ring) {
-        if (interpolatedTime > COLOR_START_DELAY_OFFSET) {
+        if (interpolatedTime > COLOR_START_DELAY_OFFSET && !ring.isSingleColor()) {
             // scale the interpolatedTime so that the full
             // transformation from 0 - 1 takes place in the
             // remaining time
-            ring.setColor(evaluateColorChange((interpolatedTime - COLOR_START_DELAY_OFFSET)
-                            / (1.0f - COLOR_START_DELAY_OFFSET), ring.getStartingColor(),
-                    ring.getNextColor()));
+            ring.setColor(ring.getRampColor((interpolatedTime - COLOR_START_DELAY_OFFSET)
+                    / (1.0f - COLOR_START_DELAY_OFFSET)));
         }
     }
 
@@ -361,94 +690,125 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
         ring.setRotation(rotation);
     }
 
-    private void setupAnimators() {
+    /**
+     * Apply the spinner state for the given fraction [0..1] of the current cycle.
+     */
+    void applyCycleTime(float interpolatedTime) {
         final Ring ring = mRing;
-        final Animation animation = new Animation() {
-            @Override
-            public void applyTransformation(float interpolatedTime, Transformation t) {
-                if (mFinishing) {
-                    applyFinishTranslation(interpolatedTime, ring);
-                } else {
-                    // The minProgressArc is calculated from 0 to create an
-                    // angle that matches the stroke width.
-                    final float minProgressArc = getMinProgressArc(ring);
-                    final float startingEndTrim = ring.getStartingEndTrim();
-                    final float startingTrim = ring.getStartingStartTrim();
-                    final float startingRotation = ring.getStartingRotation();
-
-                    updateRingColor(interpolatedTime, ring);
-
-                    // Moving the start trim only occurs in the first 50% of a
-                    // single ring animation
-                    if (interpolatedTime <= START_TRIM_DURATION_OFFSET) {
-                        // scale the interpolatedTime so that the full
-                        // transformation from 0 - 1 takes place in the
-                        // remaining time
-                        final float scaledTime = (interpolatedTime)
-                                / (1.0f - START_TRIM_DURATION_OFFSET);
-                        final float startTrim = startingTrim
-                                + ((MAX_PROGRESS_ARC - minProgressArc) * MATERIAL_INTERPOLATOR
-                                .getInterpolation(scaledTime));
-                        ring.setStartTrim(startTrim);
-                    }
-
-                    // Moving the end trim starts after 50% of a single ring
-                    // animation completes
-                    if (interpolatedTime > END_TRIM_START_DELAY_OFFSET) {
-                        // scale the interpolatedTime so that the full
-                        // transformation from 0 - 1 takes place in the
-                        // remaining time
-                        final float minArc = MAX_PROGRESS_ARC - minProgressArc;
-                        float scaledTime = (interpolatedTime - START_TRIM_DURATION_OFFSET)
-                                / (1.0f - START_TRIM_DURATION_OFFSET);
-                        final float endTrim = startingEndTrim
-                                + (minArc * MATERIAL_INTERPOLATOR.getInterpolation(scaledTime));
-                        ring.setEndTrim(endTrim);
-                    }
-
-                    final float rotation = startingRotation + (0.25f * interpolatedTime);
-                    ring.setRotation(rotation);
-
-                    float groupRotation = ((FULL_ROTATION / NUM_POINTS) * interpolatedTime)
-                            + (FULL_ROTATION * (mRotationCount / NUM_POINTS));
-                    setRotation(groupRotation);
-                }
-            }
-        };
-        animation.setRepeatCount(Animation.INFINITE);
-        animation.setRepeatMode(Animation.RESTART);
-        animation.setInterpolator(LINEAR_INTERPOLATOR);
-        animation.setAnimationListener(new Animation.AnimationListener() {
-
-            @Override
-            public void onAnimationStart(Animation animation) {
-                mRotationCount = 0;
-            }
+        if (mFinishing) {
+            applyFinishTranslation(interpolatedTime, ring);
+        } else if (mKeyframes != null) {
+            applyKeyframes(interpolatedTime, ring, mKeyframes);
+        } else {
+            // The minProgressArc is calculated from 0 to create an
+            // angle that matches the stroke width.
+            final float arc = MAX_PROGRESS_ARC - getMinProgressArc(ring);
+            final float startingRotation = ring.getStartingRotation();
+
+            updateRingColor(interpolatedTime, ring);
 
-            @Override
-            public void onAnimationEnd(Animation animation) {
-                // do nothing
+            // Moving the start trim only occurs in the first 50% of a
+            // single ring animation
+            if (interpolatedTime <= START_TRIM_DURATION_OFFSET) {
+                ring.setStartTrim(ring.getStartingStartTrim() + getStartTrimOffset(interpolatedTime, arc));
             }
 
-            @Override
-            public void onAnimationRepeat(Animation animation) {
-                ring.storeOriginals();
-                ring.goToNextColor();
-                ring.setStartTrim(ring.getEndTrim());
-                if (mFinishing) {
-                    // finished closing the last ring from the swipe gesture; go
-                    // into progress mode
-                    mFinishing = false;
-                    animation.setDuration(ANIMATION_DURATION);
-                    ring.setShowArrow(false);
-                } else {
-                    mRotationCount = (mRotationCount + 1) % (NUM_POINTS);
-                }
+            // Moving the end trim starts after 50% of a single ring
+            // animation completes
+            if (interpolatedTime > END_TRIM_START_DELAY_OFFSET) {
+                ring.setEndTrim(ring.getStartingEndTrim() + getEndTrimOffset(interpolatedTime, arc));
             }
-        });
-        mAnimation = animation;
+
+            final float rotation = startingRotation + (0.25f * interpolatedTime);
+            ring.setRotation(rotation);
+
+            float groupRotation = ((FULL_ROTATION / NUM_POINTS) * interpolatedTime)
+                    + (FULL_ROTATION * (mRotationCount / NUM_POINTS));
+            setRotation(groupRotation);
+        }
     }
 
+    /**
+     * Same as the indeterminate branch of {@link #applyCycleTime(float)}, but the
+     * trim is interpolated between the two nearest keyframes.
+     */
+    private void applyKeyframes(float interpolatedTime, Ring ring, float[] keyframes) {
+        updateRingColor(interpolatedTime, ring);
+
+        if (interpolatedTime <= START_TRIM_DURATION_OFFSET) {
+            ring.setStartTrim(ring.getStartingStartTrim() + lookupKeyframe(keyframes, interpolatedTime, 0));
+        }
+        if (interpolatedTime > END_TRIM_START_DELAY_OFFSET) {
+            ring.setEndTrim(ring.getStartingEndTrim() + lookupKeyframe(keyframes, interpolatedTime, 1));
+        }
+
+        ring.setRotation(ring.getStartingRotation() + (0.25f * interpolatedTime));
+        setRotation(((FULL_ROTATION / NUM_POINTS) * interpolatedTime)
+                + (FULL_ROTATION * (mRotationCount / NUM_POINTS)));
+    }
+
+    /**
+     * Called when a spinner cycle completes, sets up the originals for the next one.
+     */
+    void onCycleRepeat() {
+        final Ring ring = mRing;
+        ring.storeOriginals();
+        ring.goToNextColor();
+        ring.setStartTrim(ring.getEndTrim());
+        if (mFinishing) {
+            // finished closing the last ring from the swipe gesture; go
+            // into progress mode
+            mFinishing = false;
+            mState = STATE_SPINNING;
+            mCycleDuration = ANIMATION_DURATION;
+            ring.setShowArrow(false);
+        } else {
+            mRotationCount = (mRotationCount + 1) % (NUM_POINTS);
+        }
+    }
+
+    /**
+     * Advances the ring from the vsync timestamp, every setter on the ring only
+     * invalidates the bounds of this drawable.
+     */
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            // a frame posted by setProgress on another thread can race with pause
+            if (!isRunning() || mPaused) {
+                return;
+            }
+            if (mState == STATE_DETERMINATE) {
+                applyProgressFrame(frameTimeNanos);
+                return;
+            }
+            if (mCycleStartNanos == 0) {
+                mCycleStartNanos = frameTimeNanos;
+            }
+            if (mSpinStartNanos == 0) {
+                mSpinStartNanos = frameTimeNanos;
+            }
+            final long elapsed = (frameTimeNanos - mCycleStartNanos) / 1000000L;
+            if (elapsed >= mCycleDuration) {
+                applyCycleTime(1f);
+                onCycleRepeat();
+                mCycleStartNanos = frameTimeNanos;
+                refreshPowerSaveMode();
+            } else {
+                applyCycleTime((float) elapsed / mCycleDuration);
+            }
+            if (isFrameRateReduced(frameTimeNanos)) {
+                // the callback runs in the first frame whose frame time is past the delay,
+                // measured from this frame so the cadence does not depend on the refresh rate
+                final long delay = frameTimeNanos / 1000000L + REDUCED_FRAME_INTERVAL
+                        - REDUCED_FRAME_SLACK - SystemClock.uptimeMillis();
+                mChoreographer.postFrameCallbackDelayed(this, Math.max(0, delay));
+            } else {
+                mChoreographer.postFrameCallback(this);
+            }
+        }
+    };
+
     private final Callback mCallback = new Callback() {
         @Override
         public void invalidateDrawable(Drawable d) {
@@ -467,6 +827,9 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
     };
 
     private static class Ring {
+        /** Number of steps the transition between two consecutive colors is sampled into. */
+        private static final int COLOR_RAMP_STEPS = 32;
+
         private final RectF mTempBounds = new RectF();
         private final Paint mPaint = new Paint();
         private final Paint mArrowPaint = new Paint();
@@ -484,6 +847,10 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
         // progress circle should currently display. As the progress circle is
         // animating, the mColorIndex moves by one to the next available color.
         private int mColorIndex;
+        // mColorRamp holds COLOR_RAMP_STEPS + 1 blended colors from every color
+        // to the next one, so the color transition never blends per frame.
+        private int[] mColorRamp;
+        private boolean mSingleColor;
         private float mStartingStartTrim;
         private float mStartingEndTrim;
         private float mStartingRotation;
@@ -589,10 +956,63 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
          */
         public void setColors(@NonNull int[] colors) {
             mColors = colors;
+            buildColorRamp(colors);
             // if colors are reset, make sure to reset the color index as well
             setColorIndex(0);
         }
 
+        private void buildColorRamp(int[] colors) {
+            boolean singleColor = true;
+            for (int i = 1; i < colors.length; i++) {
+                if (colors[i] != colors[0]) {
+                    singleColor = false;
+                    break;
+                }
+            }
+            mSingleColor = singleColor;
+            if (singleColor) {
+                mColorRamp = null;
+                return;
+            }
+            final int stride = COLOR_RAMP_STEPS + 1;
+            final int[] ramp = new int[colors.length * stride];
+            for (int i = 0; i < colors.length; i++) {
+                final int startColor = colors[i];
+                final int endColor = colors[(i + 1) % colors.length];
+                for (int step = 0; step <= COLOR_RAMP_STEPS; step++) {
+                    ramp[i * stride + step] = evaluateColorChange(
+                            (float) step / COLOR_RAMP_STEPS, startColor, endColor);
+                }
+            }
+            mColorRamp = ramp;
+        }
+
+        /**
+         * @return true if all colors of the scheme are the same, so the ring
+         *            never has to change its color.
+         */
+        public boolean isSingleColor() {
+            return mSingleColor;
+        }
+
+        /**
+         * @param fraction Progress [0..1] of the transition from the current
+         *            color to the next color.
+         * @return int describing the blended color.
+         */
+        public int getRampColor(float fraction) {
+            if (mSingleColor) {
+                return mColors[mColorIndex];
+            }
+            int step = (int) (fraction * COLOR_RAMP_STEPS + 0.5f);
+            if (step < 0) {
+                step = 0;
+            } else if (step > COLOR_RAMP_STEPS) {
+                step = COLOR_RAMP_STEPS;
+            }
+            return mColorRamp[mColorIndex * (COLOR_RAMP_STEPS + 1) + step];
+        }
+
         /**
          * Set the absolute color of the progress spinner. This is should only
          * be used when animating between current and next color when the
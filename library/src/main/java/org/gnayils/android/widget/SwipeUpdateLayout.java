@@ -2,24 +2,41 @@ package org.gnayils.android.widget;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.content.res.TypedArray;
 import android.graphics.Color;
+import android.graphics.Rect;
+import android.graphics.drawable.AnimatedVectorDrawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.AnyThread;
 import android.support.annotation.Nullable;
+import android.support.v4.content.ContextCompat;
 import android.support.v4.view.MotionEventCompat;
+import android.support.v4.view.NestedScrollingChild;
+import android.support.v4.view.NestedScrollingChildHelper;
+import android.support.v4.view.NestedScrollingParent;
+import android.support.v4.view.NestedScrollingParentHelper;
+import android.support.v4.view.ScrollingView;
 import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
 import android.util.Log;
+import android.view.Choreographer;
+import android.view.Display;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
-import android.view.animation.Animation;
-import android.view.animation.DecelerateInterpolator;
-import android.view.animation.Transformation;
+import android.view.ViewTreeObserver;
 import android.widget.AbsListView;
 
-public class SwipeUpdateLayout extends ViewGroup {
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SwipeUpdateLayout extends ViewGroup implements NestedScrollingParent, NestedScrollingChild {
 
     private static final String LOG_TAG = SwipeUpdateLayout.class.getSimpleName();
 
@@ -28,6 +45,28 @@ public class SwipeUpdateLayout extends ViewGroup {
     public static final int AT_BOTTOM = 1;
     public static final int AT_BOTH = 2;
 
+    public static final int CONTENT_LAYER_AUTO = 0;
+    public static final int CONTENT_LAYER_ALWAYS = 1;
+    public static final int CONTENT_LAYER_NEVER = 2;
+
+    public static final int UPDATE_DISPATCH_ON_SETTLED = 0;
+    public static final int UPDATE_DISPATCH_ON_COMMIT = 1;
+
+    public static final int UPDATE_RESULT_PENDING = -1;
+    public static final int UPDATE_RESULT_COMPLETED = 0;
+    public static final int UPDATE_RESULT_FAILED = 1;
+    public static final int UPDATE_RESULT_CANCELLED = 2;
+    public static final int UPDATE_RESULT_SUPERSEDED = 3;
+    public static final int UPDATE_RESULT_TIMED_OUT = 4;
+
+    public static final int COMMIT_BEFORE_SNAP_BACK = 0;
+    public static final int COMMIT_AFTER_SNAP_BACK = 1;
+    public static final int COMMIT_IMMEDIATELY = 2;
+
+    public static final int SPINNER_FRAME_RATE_FULL = MaterialProgressDrawable.FRAME_RATE_FULL;
+    public static final int SPINNER_FRAME_RATE_ADAPTIVE = MaterialProgressDrawable.FRAME_RATE_ADAPTIVE;
+    public static final int SPINNER_FRAME_RATE_LOW_POWER = MaterialProgressDrawable.FRAME_RATE_LOW_POWER;
+
     private static final float MAX_PROGRESS_ANGLE = .8f;
     private static final int INVALID_POINTER = -1;
     private static final int CIRCLE_VIEW_BG_LIGHT = 0xFFFAFAFA;
@@ -40,80 +79,159 @@ public class SwipeUpdateLayout extends ViewGroup {
 
     private int mCircleViewCenterVerticalOffset;
 
-    private static final float DECELERATE_INTERPOLATION_FACTOR = 2f;
-    private DecelerateInterpolator mDecelerateInterpolator;
+    // seconds of the release velocity added to the indicator position when deciding to update
+    private static final float RELEASE_PROJECTION_TIME = .15f;
+    private static final float SETTLE_POSITION_TOLERANCE = .5f;
+    private static final float SETTLE_VELOCITY_TOLERANCE = 20f;
 
-    private MaterialProgressDrawable mProgressDrawable;
-    private CircleImageView mCircleView;
+    private static final int MAX_PREDICTION_OFFSET = 16;
+    private static final long DEFAULT_FRAME_INTERVAL_NANOS = 16666667L;
+
+    private final Indicator mTopIndicator;
+    private final Indicator mBottomIndicator;
+    private Indicator mDragIndicator;
+    private Indicator mContentOwner;
     private View mContentView;
 
     private int mTouchSlop;
-    private float mAnimateFrom;
-    private int mCircleViewIndex = -1;
+    private int mMinimumFlingVelocity;
+    private int mMaximumFlingVelocity;
+    private VelocityTracker mVelocityTracker;
     private boolean mIsBeingDragged;
     private int mActivePointerId = INVALID_POINTER;
     private float mInitialDownY;
     private float mInitialMotionY;
     private float mLastMotionY;
 
+    private final NestedScrollingParentHelper mNestedScrollingParentHelper;
+    private final NestedScrollingChildHelper mNestedScrollingChildHelper;
+    private final int[] mParentScrollConsumed = new int[2];
+    private final int[] mParentOffsetInWindow = new int[2];
+    private boolean mNestedScrollInProgress;
+    private boolean mIsBeingNestedDragged;
+    private float mNestedDragLength;
+    private float mNestedReleaseVelocity;
+
+    private Choreographer mChoreographer;
+    private float mGrabbedVelocity;
+    private boolean mRenderingPaused;
+    private final Rect mVisibleRect = new Rect();
+    private boolean mRenderThreadAnimations;
+    private int mColorPrimary;
+    private int mSpinnerFrameRate = SPINNER_FRAME_RATE_ADAPTIVE;
+    private boolean mSpinnerKeyframes;
+
+    private boolean mDragFramePending;
+    private float mPendingTranslationY;
+    private float mPendingDragPercent;
+    private int mCoalescedMoveCount;
+    private int mHistoricalMoveSampleCount;
+
+    private DragPredictor mDragPredictor;
+    private float mPredictionOffsetY;
+    private int mMaxPredictionOffset;
+    private long mFrameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+
     private OnChildVerticalScrollCallback mChildVerticalScrollCallback;
 
-    private OnUpdateListener mListener;
-    private boolean mUpdating;
-    private int mUpdatingPosition = AT_NOWHERE;
-    private boolean mAllowTopUpdate = false;
-    private boolean mAllowBottomUpdate = false;
-    private boolean mFreezeContentWhileTopUpdate = false;
-    private boolean mFreezeContentWhileBottomUpdate = false;
+    private boolean mChildScrollUpDirty = true;
+    private boolean mChildScrollDownDirty = true;
+    private boolean mChildCanScrollUp;
+    private boolean mChildCanScrollDown;
 
-    private final Animation mAnimateToCorrectPosition = new Animation() {
+    private final ViewTreeObserver.OnScrollChangedListener mScrollChangedListener = new ViewTreeObserver.OnScrollChangedListener() {
         @Override
-        public void applyTransformation(float interpolatedTime, Transformation t) {
-            float targetTranslationY = 0;
-            if (mUpdatingPosition == AT_TOP) {
-                targetTranslationY = mAnimateFrom - (int) ((mAnimateFrom - mTotalDragDistance) * interpolatedTime);
-            } else if (mUpdatingPosition == AT_BOTTOM) {
-                targetTranslationY = mAnimateFrom + (int) ((-mTotalDragDistance - mAnimateFrom) * interpolatedTime);
-            }
-            moveChildViewVertically(targetTranslationY);
+        public void onScrollChanged() {
+            invalidateChildScrollEdges();
+            checkAutoUpdate();
+            checkOffScreen();
         }
     };
 
-    private final Animation mAnimateToStartPosition = new Animation() {
+    // a page of a pager or a layout scrolled out of its parent stays attached and visible, whether any
+    // of it is still on screen is checked whenever the window draws
+    private final ViewTreeObserver.OnPreDrawListener mPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
         @Override
-        public void applyTransformation(float interpolatedTime, Transformation t) {
-            float targetTranslationY = mAnimateFrom + (int) ((0 - mAnimateFrom) * interpolatedTime);
-            moveChildViewVertically(targetTranslationY);
+        public boolean onPreDraw() {
+            checkOffScreen();
+            return true;
         }
     };
 
-    private Animation.AnimationListener mAnimateToPositionListener = new Animation.AnimationListener() {
+    // a layout pass only refreshes the edges, a page arriving must not request the next one by itself
+    private final ViewTreeObserver.OnGlobalLayoutListener mGlobalLayoutListener = new ViewTreeObserver.OnGlobalLayoutListener() {
         @Override
-        public void onAnimationStart(Animation animation) {
+        public void onGlobalLayout() {
+            invalidateChildScrollEdges();
+            if (mAutoUpdatePosition != AT_NOWHERE) {
+                checkContentReplaced();
+            }
         }
+    };
 
-        @Override
-        public void onAnimationRepeat(Animation animation) {
-        }
+    private OnUpdateListener mListener;
+    private OnUpdateRequestListener mRequestListener;
+    private OnUpdateOutcomeListener mOutcomeListener;
+    private OnUpdateCommitListener mCommitListener;
 
-        @SuppressLint("NewApi")
+    private static final int CONTROL_NONE = 0;
+    private static final int CONTROL_START = 1;
+    private static final int CONTROL_STOP = 2;
+    private final AtomicBoolean mControlDrainScheduled = new AtomicBoolean();
+    // not the run queue of the view, before API 24 a post from another thread while detached waits for
+    // a traversal of that thread that never comes
+    private final Handler mControlHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mControlDrainRunnable = new Runnable() {
         @Override
-        public void onAnimationEnd(Animation animation) {
-            if (mUpdating) {
-                if (!mProgressDrawable.isRunning()) {
-                    mProgressDrawable.start();
-                }
-                if (mListener != null) {
-                    mListener.onUpdate(mUpdatingPosition);
-                }
+        public void run() {
+            if (ViewCompat.isAttachedToWindow(SwipeUpdateLayout.this)) {
+                drainPostedControls();
             } else {
-                mCircleView.clearAnimation();
-                mProgressDrawable.stop();
-                mUpdatingPosition = AT_NOWHERE;
+                // kept for onAttachedToWindow
+                mControlDrainScheduled.set(false);
             }
         }
     };
+    private long mUpdateTimeout;
+
+    private static final long CONFIRMATION_DURATION = 500;
+    private long mFreshnessWindow;
+    private int mSuppressedUpdateCount;
+    private int mCoalescedUpdateCount;
+
+    private static final String SYNC_CURSOR_PREFERENCES = "org.gnayils.android.widget.SwipeUpdateLayout";
+    private SharedPreferences mSyncCursorPreferences;
+    private String mSyncCursorKey;
+    private boolean mAllowTopUpdate = false;
+    private boolean mAllowBottomUpdate = false;
+    private boolean mFreezeContentWhileTopUpdate = false;
+    private boolean mFreezeContentWhileBottomUpdate = false;
+
+    private int mUpdateDispatchMode = UPDATE_DISPATCH_ON_SETTLED;
 
+    private OnSpeculativeUpdateListener mSpeculativeListener;
+    private float mSpeculativeUpdateThreshold;
+    private int mSpeculativeUpdatePosition = AT_NOWHERE;
+
+    private static final int AUTO_UPDATE_ITEM_COUNT = 5;
+    private int mAutoUpdatePosition = AT_NOWHERE;
+    private int mAutoUpdateDistance;
+    private int mAutoUpdateItemCount = AUTO_UPDATE_ITEM_COUNT;
+    private boolean mContentTouched;
+    private Object mAutoUpdateAdapter;
+    private int mAutoUpdateContentSize;
+
+    private int mContentLayerPolicy = CONTENT_LAYER_AUTO;
+    private boolean mContentLayerPromoted;
+    private int mContentLayerTypeBeforePromotion = View.LAYER_TYPE_NONE;
+
+    private final Choreographer.FrameCallback mDragFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mDragFramePending = false;
+            applyDragTranslation(frameTimeNanos);
+        }
+    };
 
     public SwipeUpdateLayout(Context context) {
         this(context, null);
@@ -121,36 +239,166 @@ public class SwipeUpdateLayout extends ViewGroup {
 
     public SwipeUpdateLayout(Context context, AttributeSet attrs) {
         super(context, attrs);
-        mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
-        mDecelerateInterpolator = new DecelerateInterpolator(DECELERATE_INTERPOLATION_FACTOR);
+        final ViewConfiguration configuration = ViewConfiguration.get(context);
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMinimumFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaximumFlingVelocity = configuration.getScaledMaximumFlingVelocity();
 
         final DisplayMetrics metrics = getResources().getDisplayMetrics();
         mCircleViewDiameter = (int) (CIRCLE_VIEW_DIAMETER * metrics.density);
         mTotalDragDistance = (int) (TOTAL_DRAG_DISTANCE * metrics.density);
+        mMaxPredictionOffset = (int) (MAX_PREDICTION_OFFSET * metrics.density);
+        mAutoUpdateDistance = mTotalDragDistance * 4;
         mCircleViewCenterVerticalOffset = mTotalDragDistance / 2 - mCircleViewDiameter / 2;
 
-        mCircleView = new CircleImageView(getContext(), CIRCLE_VIEW_BG_LIGHT);
-        mProgressDrawable = new MaterialProgressDrawable(getContext(), mCircleView);
-        mProgressDrawable.setBackgroundColor(CIRCLE_VIEW_BG_LIGHT);
-        mProgressDrawable.setAlpha(255);
-        mCircleView.setImageDrawable(mProgressDrawable);
-        addView(mCircleView);
-
-        TypedArray typedArray = context.obtainStyledAttributes(attrs, new int[]{android.R.attr.enabled});
-        setEnabled(typedArray.getBoolean(0, true));
-        typedArray.recycle();
-
-        typedArray = context.obtainStyledAttributes(attrs, new int[]{android.R.attr.colorPrimary});
-        mProgressDrawable.setColorSchemeColors(typedArray.getColor(0, Color.BLACK));
-        typedArray.recycle();
+        // the circle views are only created once an indicator is pulled or an update starts
+        mTopIndicator = new Indicator(AT_TOP);
+        mBottomIndicator = new Indicator(AT_BOTTOM);
 
-        typedArray = context.obtainStyledAttributes(attrs, R.styleable.SwipeUpdateLayout);
+        final TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.SwipeUpdateLayout);
+        setEnabled(typedArray.getBoolean(R.styleable.SwipeUpdateLayout_android_enabled, true));
+        mColorPrimary = typedArray.getColor(R.styleable.SwipeUpdateLayout_android_colorPrimary, Color.BLACK);
         setFreezeContentAtUpdatePosition(typedArray.getInt(R.styleable.SwipeUpdateLayout_freezeContent, AT_NOWHERE));
         setAllowUpdatePosition(typedArray.getInt(R.styleable.SwipeUpdateLayout_updatePosition, AT_TOP));
+        setContentLayerPolicy(typedArray.getInt(R.styleable.SwipeUpdateLayout_contentLayer, CONTENT_LAYER_AUTO));
+        setUpdateDispatchMode(typedArray.getInt(R.styleable.SwipeUpdateLayout_updateDispatch, UPDATE_DISPATCH_ON_SETTLED));
+        setAutoUpdatePosition(typedArray.getInt(R.styleable.SwipeUpdateLayout_autoUpdatePosition, AT_NOWHERE));
+        setAutoUpdateDistance(typedArray.getDimensionPixelSize(R.styleable.SwipeUpdateLayout_autoUpdateDistance, mAutoUpdateDistance));
+        setAutoUpdateItemCount(typedArray.getInt(R.styleable.SwipeUpdateLayout_autoUpdateItemCount, AUTO_UPDATE_ITEM_COUNT));
+        setUpdateTimeout(typedArray.getInt(R.styleable.SwipeUpdateLayout_updateTimeout, 0));
+        setFreshnessWindow(typedArray.getInt(R.styleable.SwipeUpdateLayout_freshnessWindow, 0));
+        setSpinnerFrameRate(typedArray.getInt(R.styleable.SwipeUpdateLayout_spinnerFrameRate, SPINNER_FRAME_RATE_ADAPTIVE));
+        setRenderThreadAnimations(typedArray.getBoolean(R.styleable.SwipeUpdateLayout_renderThreadAnimations, false));
+        setSpinnerKeyframes(typedArray.getBoolean(R.styleable.SwipeUpdateLayout_spinnerKeyframes, false));
+        setSyncCursorKey(typedArray.getString(R.styleable.SwipeUpdateLayout_syncCursorKey));
         typedArray.recycle();
 
         setWillNotDraw(false);
         ViewCompat.setChildrenDrawingOrderEnabled(this, true);
+
+        mNestedScrollingParentHelper = new NestedScrollingParentHelper(this);
+        mNestedScrollingChildHelper = new NestedScrollingChildHelper(this);
+        setNestedScrollingEnabled(true);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        final ViewTreeObserver observer = getViewTreeObserver();
+        observer.addOnScrollChangedListener(mScrollChangedListener);
+        observer.addOnGlobalLayoutListener(mGlobalLayoutListener);
+        observer.addOnPreDrawListener(mPreDrawListener);
+        invalidateChildScrollEdges();
+        if (mSyncCursorKey != null && mSyncCursorPreferences == null) {
+            // starts loading the file in the background before the first request needs it
+            mSyncCursorPreferences = getContext().getSharedPreferences(SYNC_CURSOR_PREFERENCES, Context.MODE_PRIVATE);
+        }
+        final Display display = getDisplay();
+        if (display != null && display.getRefreshRate() > 0) {
+            mFrameIntervalNanos = (long) (1000000000L / display.getRefreshRate());
+        }
+        updateRenderingPaused();
+        // picks up what was posted while detached
+        drainPostedControls();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        mControlHandler.removeCallbacks(mControlDrainRunnable);
+        mControlDrainScheduled.set(false);
+        final ViewTreeObserver observer = getViewTreeObserver();
+        observer.removeOnScrollChangedListener(mScrollChangedListener);
+        observer.removeOnGlobalLayoutListener(mGlobalLayoutListener);
+        observer.removeOnPreDrawListener(mPreDrawListener);
+        if (mTopIndicator.mActiveRequest != null) {
+            finishUpdateRequest(mTopIndicator.mActiveRequest, UPDATE_RESULT_CANCELLED);
+        }
+        if (mBottomIndicator.mActiveRequest != null) {
+            finishUpdateRequest(mBottomIndicator.mActiveRequest, UPDATE_RESULT_CANCELLED);
+        }
+        // no frame is coming to apply the data at
+        finishSnapBackNow(mTopIndicator);
+        finishSnapBackNow(mBottomIndicator);
+        if (mTopIndicator.mPendingCommit != null) {
+            runCommit(mTopIndicator, COMMIT_IMMEDIATELY, System.nanoTime());
+        }
+        if (mBottomIndicator.mPendingCommit != null) {
+            runCommit(mBottomIndicator, COMMIT_IMMEDIATELY, System.nanoTime());
+        }
+        // leaves no frame callback behind holding on to this view
+        setRenderingPaused(true);
+        finishConfirmation(mTopIndicator);
+        finishConfirmation(mBottomIndicator);
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (ViewCompat.isAttachedToWindow(this)) {
+            updateRenderingPaused();
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (ViewCompat.isAttachedToWindow(this)) {
+            setRenderingPaused(visibility != VISIBLE || !isShown() || isOffScreen());
+        }
+    }
+
+    private void updateRenderingPaused() {
+        setRenderingPaused(getWindowVisibility() != VISIBLE || !isShown() || isOffScreen());
+    }
+
+    private void checkOffScreen() {
+        // only a layout that has shown an indicator has something to pause
+        if (mRenderingPaused || mTopIndicator.mCircleView != null || mBottomIndicator.mCircleView != null) {
+            updateRenderingPaused();
+        }
+    }
+
+    private boolean isOffScreen() {
+        // not measured yet is not off screen, the first draw checks again
+        return isLaidOut() && !getGlobalVisibleRect(mVisibleRect);
+    }
+
+    // nothing is animated while nobody can see it, the spinners pick up where they were paused
+    private void setRenderingPaused(boolean paused) {
+        if (mTopIndicator == null || paused == mRenderingPaused) {
+            // the super constructor can already report a visibility change
+            return;
+        }
+        mRenderingPaused = paused;
+        if (paused && mDragFramePending) {
+            flushDragTranslation();
+        }
+        setRenderingPaused(mTopIndicator, paused);
+        setRenderingPaused(mBottomIndicator, paused);
+    }
+
+    private void setRenderingPaused(Indicator indicator, boolean paused) {
+        if (indicator.mProgressDrawable == null) {
+            return;
+        }
+        if (!paused) {
+            indicator.mProgressDrawable.resume();
+            if (indicator.mSettledWhilePaused) {
+                // what the settle would have started, the request or the commit, happens now
+                indicator.mSettledWhilePaused = false;
+                onSettled(indicator);
+            }
+            return;
+        }
+        indicator.mProgressDrawable.pause();
+        if (indicator.mSettling) {
+            // the rest of the settle would not be seen, finish it right away
+            mChoreographer.removeFrameCallback(indicator.mSettleFrameCallback);
+            indicator.mSettling = false;
+            moveChildViewVertically(indicator, indicator.mSettleSpring.getTarget());
+            indicator.mSettledWhilePaused = true;
+        }
     }
 
     @Override
@@ -166,16 +414,14 @@ public class SwipeUpdateLayout extends ViewGroup {
                 MeasureSpec.makeMeasureSpec(getMeasuredWidth() - getPaddingLeft() - getPaddingRight(), MeasureSpec.EXACTLY),
                 MeasureSpec.makeMeasureSpec(getMeasuredHeight() - getPaddingTop() - getPaddingBottom(), MeasureSpec.EXACTLY)
         );
-        mCircleView.measure(
-                MeasureSpec.makeMeasureSpec(mCircleViewDiameter, MeasureSpec.EXACTLY),
-                MeasureSpec.makeMeasureSpec(mCircleViewDiameter, MeasureSpec.EXACTLY)
-        );
-        mCircleViewIndex = -1;
-        for (int index = 0; index < getChildCount(); index++) {
-            if (getChildAt(index) == mCircleView) {
-                mCircleViewIndex = index;
-                break;
-            }
+        final int circleViewMeasureSpec = MeasureSpec.makeMeasureSpec(mCircleViewDiameter, MeasureSpec.EXACTLY);
+        if (mTopIndicator.mCircleView != null) {
+            mTopIndicator.mCircleView.measure(circleViewMeasureSpec, circleViewMeasureSpec);
+            mTopIndicator.mIndex = indexOfChild(mTopIndicator.mCircleView);
+        }
+        if (mBottomIndicator.mCircleView != null) {
+            mBottomIndicator.mCircleView.measure(circleViewMeasureSpec, circleViewMeasureSpec);
+            mBottomIndicator.mIndex = indexOfChild(mBottomIndicator.mCircleView);
         }
     }
 
@@ -198,10 +444,18 @@ public class SwipeUpdateLayout extends ViewGroup {
         final int childWidth = width - getPaddingLeft() - getPaddingRight();
         final int childHeight = height - getPaddingTop() - getPaddingBottom();
         child.layout(childLeft, childTop, childLeft + childWidth, childTop + childHeight);
-        int circleWidth = mCircleView.getMeasuredWidth();
-        int circleHeight = mCircleView.getMeasuredHeight();
-        mCircleView.layout(width / 2 - circleWidth / 2, t - circleHeight - mCircleViewCenterVerticalOffset,
-                width / 2 + circleWidth / 2, t - mCircleViewCenterVerticalOffset);
+        if (mTopIndicator.mCircleView != null) {
+            final int circleWidth = mTopIndicator.mCircleView.getMeasuredWidth();
+            final int circleHeight = mTopIndicator.mCircleView.getMeasuredHeight();
+            mTopIndicator.mCircleView.layout(width / 2 - circleWidth / 2, t - circleHeight - mCircleViewCenterVerticalOffset,
+                    width / 2 + circleWidth / 2, t - mCircleViewCenterVerticalOffset);
+        }
+        if (mBottomIndicator.mCircleView != null) {
+            final int circleWidth = mBottomIndicator.mCircleView.getMeasuredWidth();
+            final int circleHeight = mBottomIndicator.mCircleView.getMeasuredHeight();
+            mBottomIndicator.mCircleView.layout(width / 2 - circleWidth / 2, b + mCircleViewCenterVerticalOffset,
+                    width / 2 + circleWidth / 2, b + circleHeight + mCircleViewCenterVerticalOffset);
+        }
     }
 
     @Override
@@ -210,19 +464,37 @@ public class SwipeUpdateLayout extends ViewGroup {
             return false;
         }
         ensureContentViewExists();
+        if (MotionEventCompat.getActionMasked(ev) == MotionEvent.ACTION_DOWN) {
+            // scrolls from here on are driven by the user and may arm the auto update
+            mContentTouched = true;
+        }
+        if (mNestedScrollInProgress || isNestedScrollingContent()) {
+            // the content reports its overscroll through the nested scrolling callbacks
+            return false;
+        }
         final int action = MotionEventCompat.getActionMasked(ev);
         int pointerIndex;
         switch (action) {
             case MotionEvent.ACTION_DOWN:
+                invalidateChildScrollEdges();
+                if (mDragPredictor != null) {
+                    mDragPredictor.reset();
+                }
                 mActivePointerId = ev.getPointerId(0);
                 mIsBeingDragged = false;
+                mDragIndicator = null;
                 pointerIndex = ev.findPointerIndex(mActivePointerId);
                 if (pointerIndex < 0) {
                     return false;
                 }
                 mLastMotionY = mInitialDownY = mInitialMotionY = ev.getY(pointerIndex);
+                resetVelocityTracker();
+                trackVelocity(ev);
+                mDragIndicator = grabSettlingIndicator();
+                mIsBeingDragged = mDragIndicator != null;
                 break;
             case MotionEvent.ACTION_MOVE:
+                trackVelocity(ev);
                 if (mActivePointerId == INVALID_POINTER) {
                     Log.e(LOG_TAG, "Got ACTION_MOVE event but don't have an active pointer id");
                 }
@@ -245,7 +517,7 @@ public class SwipeUpdateLayout extends ViewGroup {
                 mActivePointerId = INVALID_POINTER;
                 break;
         }
-        return mIsBeingDragged || mUpdating;
+        return mIsBeingDragged || (mContentOwner != null && mContentOwner.mUpdating);
     }
 
     @Override
@@ -267,13 +539,24 @@ public class SwipeUpdateLayout extends ViewGroup {
         int pointerIndex = -1;
         switch (action) {
             case MotionEvent.ACTION_DOWN:
+                invalidateChildScrollEdges();
+                if (mDragPredictor != null) {
+                    mDragPredictor.reset();
+                }
                 mActivePointerId = ev.getPointerId(0);
-                mIsBeingDragged = false;
                 pointerIndex = ev.findPointerIndex(mActivePointerId);
                 if (pointerIndex < 0) {
                     return false;
                 }
                 mLastMotionY = mInitialDownY = mInitialMotionY = ev.getY(pointerIndex);
+                if (mVelocityTracker == null) {
+                    trackVelocity(ev);
+                }
+                final Indicator grabbedIndicator = grabSettlingIndicator();
+                if (grabbedIndicator != null) {
+                    mDragIndicator = grabbedIndicator;
+                    mIsBeingDragged = true;
+                }
                 break;
             case MotionEventCompat.ACTION_POINTER_DOWN:
                 pointerIndex = MotionEventCompat.getActionIndex(ev);
@@ -284,6 +567,7 @@ public class SwipeUpdateLayout extends ViewGroup {
                 mActivePointerId = ev.getPointerId(pointerIndex);
                 break;
             case MotionEvent.ACTION_MOVE: {
+                trackVelocity(ev);
                 pointerIndex = ev.findPointerIndex(mActivePointerId);
                 if (pointerIndex < 0) {
                     Log.e(LOG_TAG, "Got ACTION_MOVE event but have an invalid active pointer id");
@@ -293,7 +577,7 @@ public class SwipeUpdateLayout extends ViewGroup {
                 if (!mIsBeingDragged) {
                     startDragging(currentMotionY);
                 } else {
-                    dragging(ev, currentMotionY);
+                    dragging(ev, pointerIndex);
                 }
                 mLastMotionY = currentMotionY;
                 break;
@@ -307,231 +591,1292 @@ public class SwipeUpdateLayout extends ViewGroup {
                     Log.e(LOG_TAG, "Got ACTION_UP event but don't have an active pointer id.");
                     return false;
                 }
+                trackVelocity(ev);
                 if (mIsBeingDragged) {
                     mIsBeingDragged = false;
-                    finishDragging();
+                    finishDragging(computeReleaseVelocity());
                 }
+                resetVelocityTracker();
+                return false;
             case MotionEvent.ACTION_CANCEL:
+                if (mIsBeingDragged) {
+                    mIsBeingDragged = false;
+                    finishDragging(0);
+                }
+                resetVelocityTracker();
                 return false;
         }
         return true;
     }
 
     @Override
-    protected int getChildDrawingOrder(int childCount, int i) {
-        if (mCircleViewIndex < 0) {
-            return i;
-        } else if (i == childCount - 1) {
-            return mCircleViewIndex;
-        } else if (i >= mCircleViewIndex) {
-            return i + 1;
-        } else {
-            return i;
-        }
-    }
-
-    public void updateTop() {
-        mUpdating = true;
-        ensureCircleViewPosition(AT_TOP);
-        animateOffsetToCorrectPosition(mCircleView.getTranslationY());
-
+    public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
+        return isEnabled() && !mIsBeingDragged && (nestedScrollAxes & ViewCompat.SCROLL_AXIS_VERTICAL) != 0;
     }
 
-    public void updateBottom() {
-        mUpdating = true;
-        ensureCircleViewPosition(AT_BOTTOM);
-        animateOffsetToCorrectPosition(mCircleView.getTranslationY());
-
+    @Override
+    public void onNestedScrollAccepted(View child, View target, int axes) {
+        mNestedScrollingParentHelper.onNestedScrollAccepted(child, target, axes);
+        startNestedScroll(axes & ViewCompat.SCROLL_AXIS_VERTICAL);
+        mNestedDragLength = 0;
+        mNestedReleaseVelocity = 0;
+        mDragIndicator = grabSettlingIndicator();
+        mIsBeingNestedDragged = mDragIndicator != null;
+        mNestedScrollInProgress = true;
     }
 
-    public void stopUpdating() {
-        mUpdating = false;
-        animateOffsetToStartPosition(mCircleView.getTranslationY());
+    @Override
+    public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+        Indicator indicator = null;
+        if (mIsBeingNestedDragged) {
+            indicator = mDragIndicator;
+        } else if (dy > 0 && mTopIndicator.isOut()) {
+            indicator = mTopIndicator;
+        } else if (dy < 0 && mBottomIndicator.isOut()) {
+            indicator = mBottomIndicator;
+        }
+        if (indicator != null) {
+            final float translationY = mIsBeingNestedDragged ? getIndicatorTranslationY() : indicator.mCircleView.getTranslationY();
+            if ((indicator == mTopIndicator && translationY > 0 && dy > 0)
+                    || (indicator == mBottomIndicator && translationY < 0 && dy < 0)) {
+                // push the indicator back before the content scrolls
+                startNestedDragging(indicator);
+                nestedDragging(-dy);
+                consumed[1] = dy;
+            }
+        }
+        final int[] parentConsumed = mParentScrollConsumed;
+        if (dispatchNestedPreScroll(dx - consumed[0], dy - consumed[1], parentConsumed, null)) {
+            consumed[0] += parentConsumed[0];
+            consumed[1] += parentConsumed[1];
+        }
     }
 
-    private boolean canChildScrollUp() {
-        if (!mAllowTopUpdate) {
-            return true;
+    @Override
+    public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
+        if (dyConsumed != 0 || dyUnconsumed != 0) {
+            invalidateChildScrollEdges();
         }
-        if (mChildVerticalScrollCallback != null) {
-            return mChildVerticalScrollCallback.canChildScrollUp(this, mContentView);
+        dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, mParentOffsetInWindow);
+        final int dy = dyUnconsumed + mParentOffsetInWindow[1];
+        if (dy < 0 && !canChildScrollUp() && (!mIsBeingNestedDragged || mDragIndicator == mTopIndicator)) {
+            startNestedDragging(mTopIndicator);
+            nestedDragging(-dy);
+        } else if (dy > 0 && !canChildScrollDown() && (!mIsBeingNestedDragged || mDragIndicator == mBottomIndicator)) {
+            startNestedDragging(mBottomIndicator);
+            nestedDragging(-dy);
         }
-        if (android.os.Build.VERSION.SDK_INT < 14) {
-            if (mContentView instanceof AbsListView) {
-                final AbsListView absListView = (AbsListView) mContentView;
-                return absListView.getChildCount() > 0
-                        && (absListView.getFirstVisiblePosition() > 0 || absListView.getChildAt(0).getTop() < absListView.getPaddingTop());
-            } else {
-                return ViewCompat.canScrollVertically(mContentView, -1) || mContentView.getScrollY() > 0;
+    }
+
+    @Override
+    public void onStopNestedScroll(View target) {
+        mNestedScrollingParentHelper.onStopNestedScroll(target);
+        mNestedScrollInProgress = false;
+        if (mIsBeingNestedDragged) {
+            mIsBeingNestedDragged = false;
+            float velocity = mNestedReleaseVelocity;
+            if (velocity == 0) {
+                velocity = mGrabbedVelocity;
             }
-        } else {
-            return ViewCompat.canScrollVertically(mContentView, -1);
+            mGrabbedVelocity = 0;
+            finishDragging(velocity);
         }
+        stopNestedScroll();
     }
 
-    private boolean canChildScrollDown() {
-        if (!mAllowBottomUpdate) {
+    @Override
+    public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+        if (mIsBeingNestedDragged && getIndicatorTranslationY() != 0) {
+            // the indicator is out, it settles on release instead of the content flinging
+            float dragPercent = Math.min(1f, Math.abs(mNestedDragLength) / (mTotalDragDistance * 4f));
+            mNestedReleaseVelocity = -velocityY * (1f - dragPercent);
             return true;
         }
-        if (mChildVerticalScrollCallback != null) {
-            return mChildVerticalScrollCallback.canChildScrollDown(this, mContentView);
+        return dispatchNestedPreFling(velocityX, velocityY);
+    }
+
+    @Override
+    public boolean onNestedFling(View target, float velocityX, float velocityY, boolean consumed) {
+        return dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public int getNestedScrollAxes() {
+        return mNestedScrollingParentHelper.getNestedScrollAxes();
+    }
+
+    @Override
+    public void setNestedScrollingEnabled(boolean enabled) {
+        mNestedScrollingChildHelper.setNestedScrollingEnabled(enabled);
+    }
+
+    @Override
+    public boolean isNestedScrollingEnabled() {
+        return mNestedScrollingChildHelper.isNestedScrollingEnabled();
+    }
+
+    @Override
+    public boolean startNestedScroll(int axes) {
+        return mNestedScrollingChildHelper.startNestedScroll(axes);
+    }
+
+    @Override
+    public void stopNestedScroll() {
+        mNestedScrollingChildHelper.stopNestedScroll();
+    }
+
+    @Override
+    public boolean hasNestedScrollingParent() {
+        return mNestedScrollingChildHelper.hasNestedScrollingParent();
+    }
+
+    @Override
+    public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed, int[] offsetInWindow) {
+        return mNestedScrollingChildHelper.dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
+        return mNestedScrollingChildHelper.dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedFling(float velocityX, float velocityY, boolean consumed) {
+        return mNestedScrollingChildHelper.dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public boolean dispatchNestedPreFling(float velocityX, float velocityY) {
+        return mNestedScrollingChildHelper.dispatchNestedPreFling(velocityX, velocityY);
+    }
+
+    @Override
+    protected int getChildDrawingOrder(int childCount, int i) {
+        if (mTopIndicator.mIndex < 0 && mBottomIndicator.mIndex < 0) {
+            return i;
         }
-        if (android.os.Build.VERSION.SDK_INT < 14) {
-            if (mContentView instanceof AbsListView) {
-                final AbsListView absListView = (AbsListView) mContentView;
-                return absListView.getChildCount() > 0
-                        && (absListView.getLastVisiblePosition() < absListView.getAdapter().getCount() - 1
-                        || absListView.getChildAt(absListView.getChildCount() - 1).getBottom() > (absListView.getBottom() - absListView.getPaddingBottom()));
-            } else {
-                if (ViewCompat.canScrollVertically(mContentView, 1)) {
-                    return true;
-                } else if (mContentView instanceof ViewGroup && ((ViewGroup) mContentView).getChildCount() > 0) {
-                    View childView = ((ViewGroup) mContentView).getChildAt(0);
-                    return mContentView.getScrollY() + mContentView.getHeight() < childView.getHeight();
-                } else {
-                    return false;
-                }
+        if (mTopIndicator.mIndex < 0 || mBottomIndicator.mIndex < 0) {
+            // only one of the indicators has been created yet, it is drawn over the content
+            final int index = Math.max(mTopIndicator.mIndex, mBottomIndicator.mIndex);
+            if (i == childCount - 1) {
+                return index;
             }
-        } else {
-            return ViewCompat.canScrollVertically(mContentView, 1);
+            return i >= index ? i + 1 : i;
+        }
+        // both indicators are drawn over the content
+        final int firstIndex = Math.min(mTopIndicator.mIndex, mBottomIndicator.mIndex);
+        final int secondIndex = Math.max(mTopIndicator.mIndex, mBottomIndicator.mIndex);
+        if (i == childCount - 2) {
+            return firstIndex;
+        } else if (i == childCount - 1) {
+            return secondIndex;
+        }
+        int index = i;
+        if (index >= firstIndex) {
+            index++;
         }
+        if (index >= secondIndex) {
+            index++;
+        }
+        return index;
     }
 
-    private void ensureContentViewExists() {
-        if (mContentView == null) {
-            for (int i = 0; i < getChildCount(); i++) {
-                View child = getChildAt(i);
-                if (!child.equals(mCircleView)) {
-                    mContentView = child;
-                    break;
-                }
-            }
-        }
+    public void updateTop() {
+        startUpdating(mTopIndicator, 0);
     }
 
-    private void ensureCircleViewPosition(int updatingPosition) {
-        if (updatingPosition == AT_TOP) {
-            mCircleView.layout(getWidth() / 2 - mCircleView.getWidth() / 2, getTop() - mCircleView.getHeight() - mCircleViewCenterVerticalOffset,
-                    getWidth() / 2 + mCircleView.getWidth() / 2, getTop() - mCircleViewCenterVerticalOffset);
-            mUpdatingPosition = AT_TOP;
-        } else if (updatingPosition == AT_BOTTOM) {
-            mCircleView.layout(getWidth() / 2 - mCircleView.getWidth() / 2, getBottom() + mCircleViewCenterVerticalOffset,
-                    getWidth() / 2 + mCircleView.getWidth() / 2, getBottom() + mCircleView.getHeight() + mCircleViewCenterVerticalOffset);
-            mUpdatingPosition = AT_BOTTOM;
+    public void updateTop(boolean animate) {
+        if (animate) {
+            startUpdating(mTopIndicator, 0);
+        } else {
+            startUpdatingInPlace(mTopIndicator);
         }
     }
 
-    private void startDragging(float currentMotionY) {
-        if (!mIsBeingDragged) {
-            if (mUpdating) {
-                if (currentMotionY - mInitialDownY > mTouchSlop) {
-                    mInitialMotionY = mInitialDownY + mTouchSlop;
-                    mIsBeingDragged = true;
-                } else if (currentMotionY - mInitialDownY < -mTouchSlop) {
-                    mInitialMotionY = mInitialDownY - mTouchSlop;
-                    mIsBeingDragged = true;
-                }
-            } else {
-                if (currentMotionY - mInitialDownY > mTouchSlop && !canChildScrollUp()) {
-                    mInitialMotionY = mInitialDownY + mTouchSlop;
-                    mIsBeingDragged = true;
-                    ensureCircleViewPosition(AT_TOP);
-                } else if (currentMotionY - mInitialDownY < -mTouchSlop && !canChildScrollDown()) {
-                    mInitialMotionY = mInitialDownY - mTouchSlop;
-                    mIsBeingDragged = true;
-                    ensureCircleViewPosition(AT_BOTTOM);
-                }
-            }
+    public void updateBottom() {
+        startUpdating(mBottomIndicator, 0);
+    }
+
+    public void updateBottom(boolean animate) {
+        if (animate) {
+            startUpdating(mBottomIndicator, 0);
+        } else {
+            startUpdatingInPlace(mBottomIndicator);
         }
     }
 
-    @SuppressLint("NewApi")
-    private void dragging(MotionEvent ev, float currentMotionY) {
-        float dragLength = currentMotionY - mInitialMotionY;
-        float offsetY = currentMotionY - mLastMotionY;
-        float dragPercent = Math.min(1f, Math.abs(dragLength) / (mTotalDragDistance * 4f));
-        float adjustedOffsetY = offsetY * (1f - dragPercent);
-        if (mUpdatingPosition == AT_TOP) {
-            if (!canChildScrollUp() && mCircleView.getTranslationY() + adjustedOffsetY > 0) {
-                moveChildViewVertically(mCircleView.getTranslationY() + adjustedOffsetY);
-            } else if (mCircleView.getTranslationY() == 0) {
-                mContentView.dispatchTouchEvent(ev);
-            } else if (mCircleView.getTranslationY() + adjustedOffsetY < 0) {
-                moveChildViewVertically(0);
-                ev.setAction(MotionEvent.ACTION_DOWN);
-                mContentView.dispatchTouchEvent(ev);
-            }
-        } else if (mUpdatingPosition == AT_BOTTOM) {
-            if (!canChildScrollDown() && mCircleView.getTranslationY() + adjustedOffsetY < 0) {
-                moveChildViewVertically(mCircleView.getTranslationY() + adjustedOffsetY);
-            } else if (mCircleView.getTranslationY() == 0) {
-                mContentView.dispatchTouchEvent(ev);
-            } else if (mCircleView.getTranslationY() + adjustedOffsetY > 0) {
-                moveChildViewVertically(0);
-                ev.setAction(MotionEvent.ACTION_DOWN);
-                mContentView.dispatchTouchEvent(ev);
-            }
+    public void stopUpdating() {
+        stopUpdating(AT_BOTH);
+    }
+
+    public void stopUpdating(int updatingPosition) {
+        if (updatingPosition == AT_TOP || updatingPosition == AT_BOTH) {
+            stopUpdating(mTopIndicator, null);
         }
-        float scrollPercent = Math.min(1f, Math.abs(mCircleView.getTranslationY() / (mTotalDragDistance * 4f)));
-        if (!mProgressDrawable.isRunning()) {
-            mProgressDrawable.setStartEndTrim(0f, Math.min(MAX_PROGRESS_ANGLE, dragPercent));
-            mProgressDrawable.setProgressRotation(scrollPercent);
+        if (updatingPosition == AT_BOTTOM || updatingPosition == AT_BOTH) {
+            stopUpdating(mBottomIndicator, null);
         }
     }
 
-    private void finishDragging() {
-        if (mCircleView.getTranslationY() > mTotalDragDistance) {
-            updateTop();
-        } else if (mCircleView.getTranslationY() < -mTotalDragDistance) {
-            updateBottom();
-        } else {
-            stopUpdating();
+    public void stopUpdating(int updatingPosition, Runnable commit) {
+        final Indicator indicator = getIndicator(updatingPosition);
+        if (indicator != null) {
+            stopUpdating(indicator, commit);
         }
     }
 
-    private void animateOffsetToCorrectPosition(float from) {
-        mAnimateFrom = from;
-        mAnimateToCorrectPosition.reset();
-        mAnimateToCorrectPosition.setDuration(300);
-        mAnimateToCorrectPosition.setInterpolator(mDecelerateInterpolator);
-        mAnimateToCorrectPosition.setAnimationListener(mAnimateToPositionListener);
-        clearAnimation();
-        startAnimation(mAnimateToCorrectPosition);
+    @AnyThread
+    public void postUpdate(int updatingPosition) {
+        postControl(updatingPosition, CONTROL_START);
     }
 
-    private void animateOffsetToStartPosition(float from) {
-        mAnimateFrom = from;
-        mAnimateToStartPosition.reset();
-        mAnimateToStartPosition.setDuration(300);
-        mAnimateToStartPosition.setInterpolator(mDecelerateInterpolator);
-        mAnimateToStartPosition.setAnimationListener(mAnimateToPositionListener);
-        clearAnimation();
-        startAnimation(mAnimateToStartPosition);
+    @AnyThread
+    public void postStopUpdating(int updatingPosition) {
+        postControl(updatingPosition, CONTROL_STOP);
     }
 
-    private void onSecondaryPointerUp(MotionEvent ev) {
-        final int pointerIndex = MotionEventCompat.getActionIndex(ev);
-        final int pointerId = ev.getPointerId(pointerIndex);
-        if (pointerId == mActivePointerId) {
-            final int newPointerIndex = pointerIndex == 0 ? 1 : 0;
-            mActivePointerId = ev.getPointerId(newPointerIndex);
+    // switches the indicator of an update to a determinate ring, progress is from [0..1],
+    // progress posted while no update is running at the position is dropped
+    @AnyThread
+    public void postProgress(int updatingPosition, float progress) {
+        final Indicator indicator = getIndicator(updatingPosition);
+        if (indicator == null) {
+            return;
+        }
+        setIndicatorProgress(indicator, progress);
+        // the switch itself is made by the drain, which knows whether the update is still running
+        if (!indicator.mPostedDeterminate.getAndSet(true)) {
+            scheduleControlDrain();
         }
     }
 
-    private void moveChildViewVertically(float targetTranslationY) {
-        mCircleView.setTranslationY(targetTranslationY);
-        if (mUpdatingPosition == AT_TOP && !mFreezeContentWhileTopUpdate) {
-            mContentView.setTranslationY(targetTranslationY);
-        } else if (mUpdatingPosition == AT_BOTTOM && !mFreezeContentWhileBottomUpdate) {
-            mContentView.setTranslationY(targetTranslationY);
+    private void setIndicatorProgress(Indicator indicator, float progress) {
+        // kept for a drawable created later, either the creation reads the new value or the drawable is seen here
+        indicator.mPostedProgress.set(Float.floatToIntBits(progress));
+        final MaterialProgressDrawable progressDrawable = indicator.mProgressDrawable;
+        if (progressDrawable != null) {
+            progressDrawable.setProgress(progress);
         }
     }
 
-    public void setAllowUpdatePosition(int allowUpdatePosition) {
-        if (allowUpdatePosition == AT_TOP) {
-            mAllowTopUpdate = true;
-            mAllowBottomUpdate = false;
-        } else if (allowUpdatePosition == AT_BOTTOM) {
+    private void postControl(int updatingPosition, int control) {
+        // last write wins, a start and a stop posted within the same frame leave only the latter
+        if (updatingPosition == AT_TOP || updatingPosition == AT_BOTH) {
+            mTopIndicator.mPostedControl.set(control);
+        }
+        if (updatingPosition == AT_BOTTOM || updatingPosition == AT_BOTH) {
+            mBottomIndicator.mPostedControl.set(control);
+        }
+        scheduleControlDrain();
+    }
+
+    private void scheduleControlDrain() {
+        if (mControlDrainScheduled.compareAndSet(false, true)) {
+            mControlHandler.post(mControlDrainRunnable);
+        }
+    }
+
+    private void drainPostedControls() {
+        // cleared first, anything posted while draining schedules the next drain
+        mControlDrainScheduled.set(false);
+        drainPostedControl(mTopIndicator);
+        drainPostedControl(mBottomIndicator);
+    }
+
+    private void drainPostedControl(Indicator indicator) {
+        final UpdateRequest request = indicator.mActiveRequest;
+        if (request != null) {
+            final int result = request.mPostedResult.get();
+            if (result != UPDATE_RESULT_PENDING && result != UpdateRequest.POSTING_RESULT) {
+                finishUpdateRequest(request, result, request.mPostedSyncToken, request.mPostedCommit);
+            }
+        }
+        final int control = indicator.mPostedControl.getAndSet(CONTROL_NONE);
+        if (control == CONTROL_START) {
+            startUpdating(indicator, 0);
+        } else if (control == CONTROL_STOP) {
+            stopUpdating(indicator, null);
+        }
+        if (indicator.mPostedDeterminate.getAndSet(false)) {
+            if (indicator.mUpdating) {
+                indicator.mDeterminate = true;
+            } else {
+                // a late answer of an update that has stopped, the ring starts empty next time
+                setIndicatorProgress(indicator, 0f);
+            }
+        }
+        if (indicator.mDeterminate && indicator.mUpdating && isSpinnerRunning(indicator)
+                && indicator.mProgressDrawable.getState() != MaterialProgressDrawable.STATE_DETERMINATE) {
+            startDeterminate(indicator);
+        }
+    }
+
+    public boolean isUpdating(int updatingPosition) {
+        final Indicator indicator = getIndicator(updatingPosition);
+        return indicator != null && (indicator.mUpdating || indicator.mActiveRequest != null);
+    }
+
+    @Nullable
+    public UpdateRequest getActiveUpdateRequest(int updatingPosition) {
+        final Indicator indicator = getIndicator(updatingPosition);
+        return indicator != null ? indicator.mActiveRequest : null;
+    }
+
+    private Indicator getIndicator(int updatingPosition) {
+        if (updatingPosition == AT_TOP) {
+            return mTopIndicator;
+        } else if (updatingPosition == AT_BOTTOM) {
+            return mBottomIndicator;
+        }
+        return null;
+    }
+
+    private void stopUpdating(Indicator indicator, Runnable commit) {
+        if (indicator.mActiveRequest != null) {
+            finishUpdateRequest(indicator.mActiveRequest, UPDATE_RESULT_COMPLETED, null, commit);
+        } else {
+            // only an update the listener was asked for refreshed the content
+            if (indicator.mUpdating && indicator.mUpdateDispatched && !indicator.mConfirming) {
+                indicator.mLastCompletedTime = SystemClock.uptimeMillis();
+            }
+            stopUpdatingInternal(indicator, commit);
+        }
+    }
+
+    private void stopUpdatingInternal(Indicator indicator, Runnable commit) {
+        if (commit == null) {
+            stopUpdatingInternal(indicator);
+            return;
+        }
+        if (indicator.mPendingCommit != null) {
+            // keep the data applied in the order it arrived
+            runCommit(indicator, COMMIT_IMMEDIATELY, System.nanoTime());
+        }
+        indicator.mPendingCommit = commit;
+        if (indicator.mSnapBackPending) {
+            // the frames already posted apply it and snap back
+            return;
+        }
+        if (indicator.mSettling || indicator == mDragIndicator) {
+            // the data is applied once the indicator comes to rest, see onSettled
+            stopUpdatingInternal(indicator);
+        } else {
+            // the data is applied in the next frame and the snap back starts in the frame after it,
+            // so the relayout of the new data and the first moved frame are not drawn together
+            if (mChoreographer == null) {
+                mChoreographer = Choreographer.getInstance();
+            }
+            // the update is over, only the snap back waits for the frames
+            indicator.mUpdating = false;
+            indicator.mSnapBackPending = true;
+            mChoreographer.postFrameCallback(indicator.mCommitFrameCallback);
+        }
+    }
+
+    private void finishConfirmation(Indicator indicator) {
+        if (indicator.mConfirming) {
+            // removes the confirmation runnable, the indicator goes back while rendering is paused
+            stopUpdatingInternal(indicator);
+        }
+    }
+
+    private void finishSnapBackNow(Indicator indicator) {
+        if (cancelSnapBack(indicator)) {
+            stopUpdatingInternal(indicator);
+        }
+    }
+
+    // applies the data of a snap back that has not started yet and leaves the indicator where it is
+    private boolean cancelSnapBack(Indicator indicator) {
+        if (!indicator.mSnapBackPending) {
+            return false;
+        }
+        indicator.mSnapBackPending = false;
+        mChoreographer.removeFrameCallback(indicator.mCommitFrameCallback);
+        mChoreographer.removeFrameCallback(indicator.mSnapBackFrameCallback);
+        if (indicator.mPendingCommit != null) {
+            runCommit(indicator, COMMIT_IMMEDIATELY, System.nanoTime());
+        }
+        return true;
+    }
+
+    private void runCommit(Indicator indicator, int commitPhase, long frameTimeNanos) {
+        final Runnable commit = indicator.mPendingCommit;
+        indicator.mPendingCommit = null;
+        commit.run();
+        if (mCommitListener != null) {
+            mCommitListener.onUpdateCommitted(indicator.mPosition, commitPhase, frameTimeNanos);
+        }
+    }
+
+    private void stopUpdatingInternal(Indicator indicator) {
+        indicator.mUpdating = false;
+        indicator.mAutoUpdating = false;
+        if (indicator.mDeterminate) {
+            indicator.mDeterminate = false;
+            setIndicatorProgress(indicator, 0f);
+        }
+        if (indicator.mConfirming) {
+            indicator.mConfirming = false;
+            removeCallbacks(indicator.mConfirmationRunnable);
+        }
+        if (indicator == mDragIndicator) {
+            // the indicator settles when the finger lets it go
+        } else if (indicator.isOut() || indicator.mSettling) {
+            animateOffsetToStartPosition(indicator, 0);
+        } else {
+            stopSpinner(indicator);
+        }
+    }
+
+    private void startUpdating(Indicator indicator, float velocity) {
+        // the previous update must not snap back from under this one
+        cancelSnapBack(indicator);
+        indicator.mUpdating = true;
+        indicator.mUpdateDispatched = false;
+        if (indicator.mConfirming) {
+            indicator.mConfirming = false;
+            removeCallbacks(indicator.mConfirmationRunnable);
+        }
+        animateOffsetToCorrectPosition(indicator, velocity);
+        if (mUpdateDispatchMode == UPDATE_DISPATCH_ON_COMMIT) {
+            // the indicator keeps settling while the listener already fetches
+            dispatchUpdate(indicator);
+        }
+    }
+
+    private void startUpdatingInPlace(Indicator indicator) {
+        cancelSnapBack(indicator);
+        indicator.mUpdating = true;
+        indicator.mUpdateDispatched = false;
+        if (indicator.mConfirming) {
+            indicator.mConfirming = false;
+            removeCallbacks(indicator.mConfirmationRunnable);
+        }
+        if (indicator.mSettling) {
+            mChoreographer.removeFrameCallback(indicator.mSettleFrameCallback);
+            indicator.mSettling = false;
+        }
+        ensureCircleViewExists(indicator);
+        ensureContentViewExists();
+        claimContent(indicator);
+        moveChildViewVertically(indicator, indicator.mPosition == AT_TOP ? mTotalDragDistance : -mTotalDragDistance);
+        if (mRenderingPaused) {
+            indicator.mSettledWhilePaused = true;
+        } else {
+            onSettled(indicator);
+        }
+    }
+
+    private void commitPull(Indicator indicator, float velocity) {
+        if (indicator.mActiveRequest != null || (indicator.mUpdating && indicator.mUpdateDispatched)) {
+            // a pull during an update joins it instead of requesting another one
+            mCoalescedUpdateCount++;
+            cancelSpeculativeUpdate();
+            indicator.mUpdating = true;
+            animateOffsetToCorrectPosition(indicator, velocity);
+        } else if (indicator.mPosition == AT_TOP && mFreshnessWindow > 0 && indicator.mLastCompletedTime != 0
+                && SystemClock.uptimeMillis() - indicator.mLastCompletedTime < mFreshnessWindow) {
+            // the content has just been refreshed, confirm the pull without asking for it again
+            mSuppressedUpdateCount++;
+            cancelSpeculativeUpdate();
+            cancelSnapBack(indicator);
+            indicator.mUpdating = true;
+            indicator.mUpdateDispatched = true;
+            indicator.mConfirming = true;
+            animateOffsetToCorrectPosition(indicator, velocity);
+        } else {
+            startUpdating(indicator, velocity);
+        }
+    }
+
+    private void dispatchUpdate(Indicator indicator) {
+        if (!indicator.mUpdateDispatched) {
+            indicator.mUpdateDispatched = true;
+            if (mSpeculativeUpdatePosition == indicator.mPosition) {
+                // the request started during the pull is adopted instead of starting another one,
+                // it is tracked like any other request but the listener is not asked to fetch again
+                mSpeculativeUpdatePosition = AT_NOWHERE;
+                issueUpdateRequest(indicator, false);
+                if (mSpeculativeListener != null) {
+                    mSpeculativeListener.onSpeculativeUpdateCommitted(indicator.mPosition);
+                }
+                return;
+            }
+            if (mDragIndicator == null) {
+                cancelSpeculativeUpdate();
+            }
+            if (indicator.mAutoUpdating) {
+                // the page requested before the edge was reached is still on its way
+                return;
+            }
+            issueUpdateRequest(indicator, true);
+        }
+    }
+
+    private void issueUpdateRequest(Indicator indicator, boolean notifyListener) {
+        loadSyncCursor(indicator);
+        final UpdateRequest supersededRequest = indicator.mActiveRequest;
+        indicator.mActiveRequest = new UpdateRequest(this, indicator.mPosition, indicator.mSyncToken, indicator.mLastSyncTime);
+        if (supersededRequest != null) {
+            supersededRequest.mResult = UPDATE_RESULT_SUPERSEDED;
+            supersededRequest.mLayout = null;
+            if (mOutcomeListener != null) {
+                mOutcomeListener.onUpdateOutcome(supersededRequest, UPDATE_RESULT_SUPERSEDED);
+            }
+        }
+        removeCallbacks(indicator.mUpdateTimeoutRunnable);
+        if (mUpdateTimeout > 0) {
+            postDelayed(indicator.mUpdateTimeoutRunnable, mUpdateTimeout);
+        }
+        if (!notifyListener) {
+            return;
+        }
+        if (mRequestListener != null) {
+            mRequestListener.onUpdateRequested(indicator.mActiveRequest);
+        } else if (mListener != null) {
+            mListener.onUpdate(indicator.mPosition);
+        }
+    }
+
+    private void finishUpdateRequest(UpdateRequest request, int result) {
+        finishUpdateRequest(request, result, null, null);
+    }
+
+    private void finishUpdateRequest(UpdateRequest request, int result, String syncToken, Runnable commit) {
+        final Indicator indicator = getIndicator(request.getPosition());
+        if (indicator == null || request != indicator.mActiveRequest || request.mResult != UPDATE_RESULT_PENDING) {
+            // late answer of a request that was superseded, timed out or cancelled already
+            return;
+        }
+        indicator.mActiveRequest = null;
+        request.mResult = result;
+        request.mLayout = null;
+        if (result == UPDATE_RESULT_COMPLETED) {
+            indicator.mLastCompletedTime = SystemClock.uptimeMillis();
+            saveSyncCursor(indicator, syncToken != null ? syncToken : indicator.mSyncToken, System.currentTimeMillis());
+        }
+        removeCallbacks(indicator.mUpdateTimeoutRunnable);
+        stopUpdatingInternal(indicator, commit);
+        if (mOutcomeListener != null) {
+            mOutcomeListener.onUpdateOutcome(request, result);
+        }
+    }
+
+    public void clearSyncCursor(int updatingPosition) {
+        if (updatingPosition == AT_TOP || updatingPosition == AT_BOTH) {
+            saveSyncCursor(mTopIndicator, null, 0);
+        }
+        if (updatingPosition == AT_BOTTOM || updatingPosition == AT_BOTH) {
+            saveSyncCursor(mBottomIndicator, null, 0);
+        }
+    }
+
+    private void loadSyncCursor(Indicator indicator) {
+        if (indicator.mSyncCursorLoaded) {
+            return;
+        }
+        indicator.mSyncCursorLoaded = true;
+        final String key = getSyncCursorKey(indicator);
+        if (key != null) {
+            if (mSyncCursorPreferences == null) {
+                mSyncCursorPreferences = getContext().getSharedPreferences(SYNC_CURSOR_PREFERENCES, Context.MODE_PRIVATE);
+            }
+            indicator.mSyncToken = mSyncCursorPreferences.getString(key + ".token", null);
+            indicator.mLastSyncTime = mSyncCursorPreferences.getLong(key + ".time", 0);
+        }
+    }
+
+    private void saveSyncCursor(Indicator indicator, String syncToken, long syncTime) {
+        indicator.mSyncCursorLoaded = true;
+        indicator.mSyncToken = syncToken;
+        indicator.mLastSyncTime = syncTime;
+        final String key = getSyncCursorKey(indicator);
+        if (key == null) {
+            return;
+        }
+        if (mSyncCursorPreferences == null) {
+            mSyncCursorPreferences = getContext().getSharedPreferences(SYNC_CURSOR_PREFERENCES, Context.MODE_PRIVATE);
+        }
+        final SharedPreferences.Editor editor = mSyncCursorPreferences.edit();
+        if (syncToken != null) {
+            editor.putString(key + ".token", syncToken);
+        } else {
+            editor.remove(key + ".token");
+        }
+        if (syncTime != 0) {
+            editor.putLong(key + ".time", syncTime);
+        } else {
+            editor.remove(key + ".time");
+        }
+        editor.apply();
+    }
+
+    private String getSyncCursorKey(Indicator indicator) {
+        if (mSyncCursorKey == null) {
+            // nothing identifies the layout across process restarts, the cursor is kept in memory only
+            return null;
+        }
+        return mSyncCursorKey + (indicator.mPosition == AT_TOP ? ".top" : ".bottom");
+    }
+
+    private void checkAutoUpdate() {
+        if (mAutoUpdatePosition == AT_NOWHERE || mContentView == null || !isEnabled()) {
+            return;
+        }
+        checkContentReplaced();
+        if (mAutoUpdatePosition == AT_BOTTOM || mAutoUpdatePosition == AT_BOTH) {
+            checkAutoUpdate(mBottomIndicator);
+        }
+        if (mAutoUpdatePosition == AT_TOP || mAutoUpdatePosition == AT_BOTH) {
+            checkAutoUpdate(mTopIndicator);
+        }
+    }
+
+    private void checkAutoUpdate(Indicator indicator) {
+        if (indicator == mDragIndicator || indicator.mUpdating || indicator.mSnapBackPending) {
+            return;
+        }
+        if (indicator.mAutoUpdating) {
+            if (isContentAtEdge(indicator.mPosition)) {
+                // the page has not arrived by the time the edge is reached, show the indicator
+                indicator.mUpdating = true;
+                indicator.mUpdateDispatched = true;
+                animateOffsetToCorrectPosition(indicator, 0);
+            }
+            return;
+        }
+        final int distance = getContentDistanceToEdge(indicator.mPosition);
+        final boolean towardEdge = indicator.mLastEdgeDistance >= 0 && distance < indicator.mLastEdgeDistance;
+        indicator.mLastEdgeDistance = distance;
+        if (indicator.mAutoUpdateSpent && distance > indicator.mAutoUpdateEdgeDistance) {
+            // the edge moved away, content was added or the user scrolled back
+            indicator.mAutoUpdateSpent = false;
+        }
+        // only a user scroll toward the edge of content longer than the viewport asks for the next page,
+        // once per edge, a page that leaves the content near the edge does not request another one
+        if (!indicator.mAutoUpdateSpent && towardEdge && mContentTouched && indicator.mActiveRequest == null
+                && isContentScrollable() && isContentNearEdge(distance)) {
+            indicator.mAutoUpdating = true;
+            indicator.mAutoUpdateSpent = true;
+            indicator.mAutoUpdateEdgeDistance = distance;
+            // the page after this one waits for the user to scroll again
+            mContentTouched = false;
+            issueUpdateRequest(indicator, true);
+        }
+    }
+
+    // pages are only ever added, another adapter or less content than before means the content was
+    // replaced and nothing the user did so far asks for its next page
+    private void checkContentReplaced() {
+        Object adapter = null;
+        final int size;
+        if (mContentView instanceof AbsListView) {
+            adapter = ((AbsListView) mContentView).getAdapter();
+            size = ((AbsListView) mContentView).getCount();
+        } else if (mContentView instanceof ScrollingView) {
+            size = ((ScrollingView) mContentView).computeVerticalScrollRange();
+        } else {
+            return;
+        }
+        if (adapter != mAutoUpdateAdapter || size < mAutoUpdateContentSize) {
+            mContentTouched = false;
+            resetAutoUpdateEdge(mTopIndicator);
+            resetAutoUpdateEdge(mBottomIndicator);
+        }
+        mAutoUpdateAdapter = adapter;
+        mAutoUpdateContentSize = size;
+    }
+
+    private void resetAutoUpdateEdge(Indicator indicator) {
+        indicator.mAutoUpdateSpent = false;
+        indicator.mLastEdgeDistance = -1;
+    }
+
+    // in items for a list, in pixels for other scrolling views, 0 or 1 if only the edge itself is known
+    private int getContentDistanceToEdge(int position) {
+        if (mContentView instanceof AbsListView) {
+            final AbsListView absListView = (AbsListView) mContentView;
+            final int count = absListView.getCount();
+            if (count > 0 && absListView.getChildCount() > 0) {
+                return position == AT_BOTTOM
+                        ? count - 1 - absListView.getLastVisiblePosition()
+                        : absListView.getFirstVisiblePosition();
+            }
+        } else if (mContentView instanceof ScrollingView) {
+            final ScrollingView scrollingView = (ScrollingView) mContentView;
+            return position == AT_BOTTOM
+                    ? scrollingView.computeVerticalScrollRange() - scrollingView.computeVerticalScrollOffset()
+                    - scrollingView.computeVerticalScrollExtent()
+                    : scrollingView.computeVerticalScrollOffset();
+        }
+        return isContentAtEdge(position) ? 0 : 1;
+    }
+
+    private boolean isContentNearEdge(int distance) {
+        if (mContentView instanceof AbsListView) {
+            return distance < mAutoUpdateItemCount;
+        } else if (mContentView instanceof ScrollingView) {
+            return distance <= mAutoUpdateDistance;
+        }
+        return distance == 0;
+    }
+
+    private boolean isContentScrollable() {
+        if (mContentView instanceof ScrollingView) {
+            final ScrollingView scrollingView = (ScrollingView) mContentView;
+            return scrollingView.computeVerticalScrollRange() > scrollingView.computeVerticalScrollExtent();
+        }
+        return !isContentAtEdge(AT_TOP) || !isContentAtEdge(AT_BOTTOM);
+    }
+
+    private boolean isContentAtEdge(int position) {
+        if (position == AT_TOP) {
+            return mChildVerticalScrollCallback != null
+                    ? !mChildVerticalScrollCallback.canChildScrollUp(this, mContentView)
+                    : !computeCanChildScrollUp();
+        } else if (position == AT_BOTTOM) {
+            return mChildVerticalScrollCallback != null
+                    ? !mChildVerticalScrollCallback.canChildScrollDown(this, mContentView)
+                    : !computeCanChildScrollDown();
+        }
+        return false;
+    }
+
+    private void invalidateChildScrollEdges() {
+        mChildScrollUpDirty = true;
+        mChildScrollDownDirty = true;
+    }
+
+    private boolean canChildScrollUp() {
+        if (!mAllowTopUpdate) {
+            return true;
+        }
+        if (mChildVerticalScrollCallback != null) {
+            return mChildVerticalScrollCallback.canChildScrollUp(this, mContentView);
+        }
+        if (mChildScrollUpDirty) {
+            mChildCanScrollUp = computeCanChildScrollUp();
+            mChildScrollUpDirty = false;
+        }
+        return mChildCanScrollUp;
+    }
+
+    private boolean canChildScrollDown() {
+        if (!mAllowBottomUpdate) {
+            return true;
+        }
+        if (mChildVerticalScrollCallback != null) {
+            return mChildVerticalScrollCallback.canChildScrollDown(this, mContentView);
+        }
+        if (mChildScrollDownDirty) {
+            mChildCanScrollDown = computeCanChildScrollDown();
+            mChildScrollDownDirty = false;
+        }
+        return mChildCanScrollDown;
+    }
+
+    private boolean computeCanChildScrollUp() {
+        if (android.os.Build.VERSION.SDK_INT < 14) {
+            if (mContentView instanceof AbsListView) {
+                final AbsListView absListView = (AbsListView) mContentView;
+                return absListView.getChildCount() > 0
+                        && (absListView.getFirstVisiblePosition() > 0 || absListView.getChildAt(0).getTop() < absListView.getPaddingTop());
+            } else {
+                return ViewCompat.canScrollVertically(mContentView, -1) || mContentView.getScrollY() > 0;
+            }
+        } else {
+            return ViewCompat.canScrollVertically(mContentView, -1);
+        }
+    }
+
+    private boolean computeCanChildScrollDown() {
+        if (android.os.Build.VERSION.SDK_INT < 14) {
+            if (mContentView instanceof AbsListView) {
+                final AbsListView absListView = (AbsListView) mContentView;
+                return absListView.getChildCount() > 0
+                        && (absListView.getLastVisiblePosition() < absListView.getAdapter().getCount() - 1
+                        || absListView.getChildAt(absListView.getChildCount() - 1).getBottom() > (absListView.getBottom() - absListView.getPaddingBottom()));
+            } else {
+                if (ViewCompat.canScrollVertically(mContentView, 1)) {
+                    return true;
+                } else if (mContentView instanceof ViewGroup && ((ViewGroup) mContentView).getChildCount() > 0) {
+                    View childView = ((ViewGroup) mContentView).getChildAt(0);
+                    return mContentView.getScrollY() + mContentView.getHeight() < childView.getHeight();
+                } else {
+                    return false;
+                }
+            }
+        } else {
+            return ViewCompat.canScrollVertically(mContentView, 1);
+        }
+    }
+
+    private void ensureContentViewExists() {
+        if (mContentView == null) {
+            for (int i = 0; i < getChildCount(); i++) {
+                View child = getChildAt(i);
+                if (child != mTopIndicator.mCircleView && child != mBottomIndicator.mCircleView) {
+                    mContentView = child;
+                    invalidateChildScrollEdges();
+                    if (mContentOwner != null) {
+                        // an update started before the content was added, it joins the indicator here
+                        mContentView.setTranslationY(mContentOwner.mCircleView.getTranslationY());
+                        promoteContentLayer();
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    private void startDragging(float currentMotionY) {
+        if (!mIsBeingDragged) {
+            if (currentMotionY - mInitialDownY > mTouchSlop) {
+                mDragIndicator = pickDragIndicator(mTopIndicator, mBottomIndicator, !canChildScrollUp());
+                mInitialMotionY = mInitialDownY + mTouchSlop;
+            } else if (currentMotionY - mInitialDownY < -mTouchSlop) {
+                mDragIndicator = pickDragIndicator(mBottomIndicator, mTopIndicator, !canChildScrollDown());
+                mInitialMotionY = mInitialDownY - mTouchSlop;
+            }
+            if (mDragIndicator != null) {
+                mIsBeingDragged = true;
+                ensureCircleViewExists(mDragIndicator);
+                claimContent(mDragIndicator);
+            }
+        }
+    }
+
+    private Indicator pickDragIndicator(Indicator leadingIndicator, Indicator trailingIndicator, boolean reachedLeadingEdge) {
+        if (leadingIndicator.isOut()) {
+            return leadingIndicator;
+        } else if (trailingIndicator.isOut()) {
+            // pushed back before the content scrolls
+            return trailingIndicator;
+        } else if (reachedLeadingEdge) {
+            return leadingIndicator;
+        }
+        return null;
+    }
+
+    @SuppressLint("NewApi")
+    private void dragging(MotionEvent ev, int pointerIndex) {
+        final float currentMotionY = ev.getY(pointerIndex);
+        final float translationY = getIndicatorTranslationY();
+        // fold the samples batched into this event into the drag resistance integration
+        final int historySize = ev.getHistorySize();
+        float lastMotionY = mLastMotionY;
+        float draggedTranslationY = translationY;
+        float dragPercent = 0;
+        for (int h = 0; h <= historySize; h++) {
+            final float motionY = h < historySize ? ev.getHistoricalY(pointerIndex, h) : currentMotionY;
+            if (mDragPredictor != null) {
+                mDragPredictor.addSample(h < historySize ? ev.getHistoricalEventTime(h) : ev.getEventTime(), motionY);
+            }
+            dragPercent = Math.min(1f, Math.abs(motionY - mInitialMotionY) / (mTotalDragDistance * 4f));
+            draggedTranslationY += (motionY - lastMotionY) * (1f - dragPercent);
+            lastMotionY = motionY;
+        }
+        mHistoricalMoveSampleCount += historySize;
+        float targetTranslationY = translationY;
+        if (mDragIndicator == mTopIndicator) {
+            if (!canChildScrollUp() && draggedTranslationY > 0) {
+                targetTranslationY = draggedTranslationY;
+            } else if (translationY == 0) {
+                mContentView.dispatchTouchEvent(ev);
+                invalidateChildScrollEdges();
+            } else if (draggedTranslationY < 0) {
+                targetTranslationY = 0;
+                ev.setAction(MotionEvent.ACTION_DOWN);
+                mContentView.dispatchTouchEvent(ev);
+                invalidateChildScrollEdges();
+            }
+        } else if (mDragIndicator == mBottomIndicator) {
+            if (!canChildScrollDown() && draggedTranslationY < 0) {
+                targetTranslationY = draggedTranslationY;
+            } else if (translationY == 0) {
+                mContentView.dispatchTouchEvent(ev);
+                invalidateChildScrollEdges();
+            } else if (draggedTranslationY > 0) {
+                targetTranslationY = 0;
+                ev.setAction(MotionEvent.ACTION_DOWN);
+                mContentView.dispatchTouchEvent(ev);
+                invalidateChildScrollEdges();
+            }
+        }
+        postDragTranslation(targetTranslationY, dragPercent);
+    }
+
+    private float getIndicatorTranslationY() {
+        return mDragFramePending ? mPendingTranslationY : mDragIndicator.mCircleView.getTranslationY() - mPredictionOffsetY;
+    }
+
+    private void postDragTranslation(float translationY, float dragPercent) {
+        if (!mDragIndicator.mUpdating && mSpeculativeListener != null && mSpeculativeUpdateThreshold > 0
+                && mSpeculativeUpdatePosition == AT_NOWHERE
+                && Math.abs(translationY) >= mSpeculativeUpdateThreshold * mTotalDragDistance) {
+            mSpeculativeUpdatePosition = mDragIndicator.mPosition;
+            mSpeculativeListener.onSpeculativeUpdate(mSpeculativeUpdatePosition);
+        }
+        mPendingTranslationY = translationY;
+        mPendingDragPercent = dragPercent;
+        if (mDragFramePending) {
+            mCoalescedMoveCount++;
+            return;
+        }
+        if (mChoreographer == null) {
+            mChoreographer = Choreographer.getInstance();
+        }
+        mDragFramePending = true;
+        mChoreographer.postFrameCallback(mDragFrameCallback);
+    }
+
+    private void flushDragTranslation() {
+        if (mDragFramePending) {
+            mChoreographer.removeFrameCallback(mDragFrameCallback);
+            mDragFramePending = false;
+            applyDragTranslation(0);
+        } else if (mPredictionOffsetY != 0) {
+            // drop the prediction, the indicator goes back to the last real sample
+            mPredictionOffsetY = 0;
+            moveChildViewVertically(mDragIndicator, mPendingTranslationY);
+        }
+    }
+
+    private void applyDragTranslation(long frameTimeNanos) {
+        if (mDragIndicator == null) {
+            return;
+        }
+        float translationY = mPendingTranslationY;
+        float predictedTranslationY = translationY;
+        if (mDragPredictor != null && frameTimeNanos != 0 && mIsBeingDragged) {
+            // the frame is shown one vsync after its frame time
+            final long displayTimeMs = (frameTimeNanos + mFrameIntervalNanos) / 1000000L;
+            predictedTranslationY += mDragPredictor.predictOffset(displayTimeMs, mMaxPredictionOffset)
+                    * (1f - mPendingDragPercent);
+            if (mDragIndicator == mTopIndicator) {
+                predictedTranslationY = translationY == 0 ? 0 : Math.max(0, predictedTranslationY);
+            } else {
+                predictedTranslationY = translationY == 0 ? 0 : Math.min(0, predictedTranslationY);
+            }
+        }
+        mPredictionOffsetY = predictedTranslationY - translationY;
+        moveChildViewVertically(mDragIndicator, predictedTranslationY);
+        updateProgressTrim(mDragIndicator, mPendingDragPercent);
+    }
+
+    private void updateProgressTrim(Indicator indicator, float dragPercent) {
+        float scrollPercent = Math.min(1f, Math.abs(indicator.mCircleView.getTranslationY() / (mTotalDragDistance * 4f)));
+        if (!isSpinnerRunning(indicator)) {
+            indicator.mProgressDrawable.setStartEndTrim(0f, Math.min(MAX_PROGRESS_ANGLE, dragPercent));
+            indicator.mProgressDrawable.setProgressRotation(scrollPercent);
+        }
+    }
+
+    private void nestedDragging(float offsetY) {
+        mNestedDragLength += offsetY;
+        float dragPercent = Math.min(1f, Math.abs(mNestedDragLength) / (mTotalDragDistance * 4f));
+        float targetTranslationY = getIndicatorTranslationY() + offsetY * (1f - dragPercent);
+        if (mDragIndicator == mTopIndicator) {
+            targetTranslationY = Math.max(0, targetTranslationY);
+        } else {
+            targetTranslationY = Math.min(0, targetTranslationY);
+        }
+        postDragTranslation(targetTranslationY, dragPercent);
+    }
+
+    private void startNestedDragging(Indicator indicator) {
+        if (!mIsBeingNestedDragged) {
+            mDragIndicator = indicator;
+            mIsBeingNestedDragged = true;
+            ensureCircleViewExists(indicator);
+            claimContent(indicator);
+        }
+    }
+
+    private boolean isNestedScrollingContent() {
+        return mContentView != null && ViewCompat.isNestedScrollingEnabled(mContentView);
+    }
+
+    private void finishDragging(float velocity) {
+        flushDragTranslation();
+        final Indicator indicator = mDragIndicator;
+        mDragIndicator = null;
+        if (indicator == null) {
+            return;
+        }
+        final float translationY = indicator.mCircleView.getTranslationY();
+        float projectedTranslationY = translationY;
+        if (Math.abs(velocity) > mMinimumFlingVelocity) {
+            // a fast flick can commit an update before the threshold is crossed
+            projectedTranslationY += velocity * RELEASE_PROJECTION_TIME;
+        }
+        if ((indicator == mTopIndicator && translationY > 0 && projectedTranslationY > mTotalDragDistance)
+                || (indicator == mBottomIndicator && translationY < 0 && projectedTranslationY < -mTotalDragDistance)) {
+            commitPull(indicator, velocity);
+        } else {
+            indicator.mUpdating = false;
+            cancelSpeculativeUpdate();
+            animateOffsetToStartPosition(indicator, velocity);
+        }
+    }
+
+    private void cancelSpeculativeUpdate() {
+        if (mSpeculativeUpdatePosition != AT_NOWHERE) {
+            final int speculativeUpdatePosition = mSpeculativeUpdatePosition;
+            mSpeculativeUpdatePosition = AT_NOWHERE;
+            if (mSpeculativeListener != null) {
+                mSpeculativeListener.onSpeculativeUpdateCancelled(speculativeUpdatePosition);
+            }
+        }
+    }
+
+    private void trackVelocity(MotionEvent ev) {
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        mVelocityTracker.addMovement(ev);
+    }
+
+    private void resetVelocityTracker() {
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
+    private float computeReleaseVelocity() {
+        float velocity = 0;
+        if (mVelocityTracker != null) {
+            mVelocityTracker.computeCurrentVelocity(1000, mMaximumFlingVelocity);
+            velocity = mVelocityTracker.getYVelocity(mActivePointerId);
+        }
+        // the indicator moves slower than the finger because of the drag resistance
+        float dragPercent = Math.min(1f, Math.abs(mLastMotionY - mInitialMotionY) / (mTotalDragDistance * 4f));
+        velocity *= 1f - dragPercent;
+        if (velocity == 0) {
+            // the indicator was grabbed while settling and let go without moving it
+            velocity = mGrabbedVelocity;
+        }
+        mGrabbedVelocity = 0;
+        return velocity;
+    }
+
+    private void animateOffsetToCorrectPosition(Indicator indicator, float velocity) {
+        settleTo(indicator, indicator.mPosition == AT_TOP ? mTotalDragDistance : -mTotalDragDistance, velocity);
+    }
+
+    private void animateOffsetToStartPosition(Indicator indicator, float velocity) {
+        settleTo(indicator, 0, velocity);
+    }
+
+    private void settleTo(Indicator indicator, float targetTranslationY, float velocity) {
+        ensureCircleViewExists(indicator);
+        if (mChoreographer == null) {
+            mChoreographer = Choreographer.getInstance();
+        }
+        mChoreographer.removeFrameCallback(indicator.mSettleFrameCallback);
+        if (indicator == mDragIndicator) {
+            flushDragTranslation();
+        }
+        indicator.mSettleSpring.set(indicator.mCircleView.getTranslationY(), velocity, targetTranslationY);
+        indicator.mSettling = true;
+        indicator.mLastSettleFrameNanos = 0;
+        claimContent(indicator);
+        if (mRenderingPaused) {
+            indicator.mSettling = false;
+            moveChildViewVertically(indicator, targetTranslationY);
+            indicator.mSettledWhilePaused = true;
+            return;
+        }
+        mChoreographer.postFrameCallback(indicator.mSettleFrameCallback);
+    }
+
+    private Indicator grabSettlingIndicator() {
+        Indicator indicator = null;
+        if (mContentOwner != null && mContentOwner.mSettling) {
+            indicator = mContentOwner;
+        } else if (mTopIndicator.mSettling) {
+            indicator = mTopIndicator;
+        } else if (mBottomIndicator.mSettling) {
+            indicator = mBottomIndicator;
+        }
+        if (indicator != null) {
+            mChoreographer.removeFrameCallback(indicator.mSettleFrameCallback);
+            indicator.mSettling = false;
+            mGrabbedVelocity = indicator.mSettleSpring.getVelocity();
+            claimContent(indicator);
+        }
+        return indicator;
+    }
+
+    @SuppressLint("NewApi")
+    private void onSettled(Indicator indicator) {
+        if (indicator.mUpdating) {
+            if (indicator == mContentOwner && mContentLayerPolicy != CONTENT_LAYER_ALWAYS) {
+                releaseContentLayer();
+            }
+            if (indicator.mDeterminate) {
+                if (indicator.mProgressDrawable.getState() != MaterialProgressDrawable.STATE_DETERMINATE) {
+                    startDeterminate(indicator);
+                }
+            } else if (!isSpinnerRunning(indicator)) {
+                startSpinner(indicator);
+            }
+            if (indicator.mConfirming) {
+                removeCallbacks(indicator.mConfirmationRunnable);
+                postDelayed(indicator.mConfirmationRunnable, CONFIRMATION_DURATION);
+            }
+            dispatchUpdate(indicator);
+        } else {
+            stopSpinner(indicator);
+            if (indicator == mContentOwner) {
+                mContentOwner = null;
+                releaseContentLayer();
+            }
+        }
+        if (indicator.mPendingCommit != null) {
+            runCommit(indicator, COMMIT_AFTER_SNAP_BACK,
+                    indicator.mLastSettleFrameNanos != 0 ? indicator.mLastSettleFrameNanos : System.nanoTime());
+        }
+    }
+
+    // the animated vector spinner runs on the RenderThread from API 25 on and keeps turning while the
+    // main thread is busy, the ring drawn while pulling and the determinate arc stay on the main thread
+    private void startSpinner(Indicator indicator) {
+        if (!mRenderThreadAnimations) {
+            indicator.mProgressDrawable.start();
+            return;
+        }
+        if (indicator.mSpinnerDrawable == null) {
+            indicator.mSpinnerDrawable = (AnimatedVectorDrawable) ContextCompat.getDrawable(getContext(),
+                    R.drawable.spinner_indeterminate_animated).mutate();
+            indicator.mSpinnerDrawable.setTint(mColorPrimary);
+        }
+        indicator.mProgressDrawable.stop();
+        indicator.mCircleView.setImageDrawable(indicator.mSpinnerDrawable);
+        indicator.mSpinnerDrawable.start();
+    }
+
+    private void startDeterminate(Indicator indicator) {
+        hideSpinnerDrawable(indicator);
+        indicator.mProgressDrawable.startDeterminate();
+    }
+
+    private void stopSpinner(Indicator indicator) {
+        if (indicator.mProgressDrawable == null) {
+            return;
+        }
+        hideSpinnerDrawable(indicator);
+        indicator.mProgressDrawable.stop();
+    }
+
+    private void hideSpinnerDrawable(Indicator indicator) {
+        if (indicator.mSpinnerDrawable != null && indicator.mCircleView.getDrawable() == indicator.mSpinnerDrawable) {
+            indicator.mSpinnerDrawable.stop();
+            indicator.mCircleView.setImageDrawable(indicator.mProgressDrawable);
+        }
+    }
+
+    private boolean isSpinnerRunning(Indicator indicator) {
+        if (indicator.mProgressDrawable == null) {
+            return false;
+        }
+        return indicator.mProgressDrawable.isRunning()
+                || (indicator.mSpinnerDrawable != null && indicator.mSpinnerDrawable.isRunning());
+    }
+
+    private void onSecondaryPointerUp(MotionEvent ev) {
+        final int pointerIndex = MotionEventCompat.getActionIndex(ev);
+        final int pointerId = ev.getPointerId(pointerIndex);
+        if (pointerId == mActivePointerId) {
+            final int newPointerIndex = pointerIndex == 0 ? 1 : 0;
+            mActivePointerId = ev.getPointerId(newPointerIndex);
+        }
+    }
+
+    private void ensureCircleViewExists(Indicator indicator) {
+        if (indicator.mCircleView != null) {
+            return;
+        }
+        final CircleImageView circleView = new CircleImageView(getContext(), CIRCLE_VIEW_BG_LIGHT);
+        final MaterialProgressDrawable progressDrawable = new MaterialProgressDrawable(getContext(), circleView);
+        progressDrawable.setBackgroundColor(CIRCLE_VIEW_BG_LIGHT);
+        progressDrawable.setAlpha(255);
+        progressDrawable.setColorSchemeColors(mColorPrimary);
+        progressDrawable.setFrameRatePolicy(mSpinnerFrameRate);
+        progressDrawable.setUseKeyframes(mSpinnerKeyframes);
+        if (mRenderingPaused) {
+            progressDrawable.pause();
+        }
+        circleView.setImageDrawable(progressDrawable);
+        indicator.mCircleView = circleView;
+        indicator.mProgressDrawable = progressDrawable;
+        progressDrawable.setProgress(Float.intBitsToFloat(indicator.mPostedProgress.get()));
+        addView(circleView);
+    }
+
+    // what the constructor built before the indicators were created lazily, for the inflation measurements
+    void ensureCircleViewsExist() {
+        ensureCircleViewExists(mTopIndicator);
+        ensureCircleViewExists(mBottomIndicator);
+    }
+
+    private void moveChildViewVertically(Indicator indicator, float targetTranslationY) {
+        indicator.mCircleView.setTranslationY(targetTranslationY);
+        if (indicator == mContentOwner) {
+            // a programmatic update can settle before the first layout found the content
+            if (mContentView == null) {
+                ensureContentViewExists();
+            }
+            if (mContentView != null) {
+                mContentView.setTranslationY(targetTranslationY);
+            }
+        }
+    }
+
+    // the first indicator to move takes the content along until it is back at its start position,
+    // an indicator moving meanwhile at the other edge is drawn over the content
+    private void claimContent(Indicator indicator) {
+        if (mContentOwner == null && isContentMovingAt(indicator.mPosition)) {
+            mContentOwner = indicator;
+        }
+        if (mContentOwner == indicator) {
+            promoteContentLayer();
+        }
+    }
+
+    private boolean isContentMovingAt(int updatingPosition) {
+        return (updatingPosition == AT_TOP && !mFreezeContentWhileTopUpdate)
+                || (updatingPosition == AT_BOTTOM && !mFreezeContentWhileBottomUpdate);
+    }
+
+    private void promoteContentLayer() {
+        if (mContentLayerPromoted || mContentView == null || mContentLayerPolicy == CONTENT_LAYER_NEVER) {
+            return;
+        }
+        mContentLayerTypeBeforePromotion = mContentView.getLayerType();
+        if (mContentLayerTypeBeforePromotion != View.LAYER_TYPE_HARDWARE) {
+            mContentView.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        }
+        mContentLayerPromoted = true;
+    }
+
+    private void releaseContentLayer() {
+        if (!mContentLayerPromoted) {
+            return;
+        }
+        if (mContentView != null && mContentLayerTypeBeforePromotion != View.LAYER_TYPE_HARDWARE) {
+            mContentView.setLayerType(mContentLayerTypeBeforePromotion, null);
+        }
+        mContentLayerPromoted = false;
+    }
+
+    public void setAllowUpdatePosition(int allowUpdatePosition) {
+        if (allowUpdatePosition == AT_TOP) {
+            mAllowTopUpdate = true;
+            mAllowBottomUpdate = false;
+        } else if (allowUpdatePosition == AT_BOTTOM) {
             mAllowTopUpdate = false;
             mAllowBottomUpdate = true;
         } else if (allowUpdatePosition == AT_BOTH) {
@@ -556,19 +1901,387 @@ public class SwipeUpdateLayout extends ViewGroup {
         }
     }
 
+    public void setContentLayerPolicy(int contentLayerPolicy) {
+        if (contentLayerPolicy == CONTENT_LAYER_AUTO || contentLayerPolicy == CONTENT_LAYER_ALWAYS
+                || contentLayerPolicy == CONTENT_LAYER_NEVER) {
+            mContentLayerPolicy = contentLayerPolicy;
+            if (contentLayerPolicy == CONTENT_LAYER_NEVER) {
+                releaseContentLayer();
+            }
+        }
+    }
+
+    public void setUpdateDispatchMode(int updateDispatchMode) {
+        if (updateDispatchMode == UPDATE_DISPATCH_ON_SETTLED || updateDispatchMode == UPDATE_DISPATCH_ON_COMMIT) {
+            mUpdateDispatchMode = updateDispatchMode;
+        }
+    }
+
+    public void setAutoUpdatePosition(int autoUpdatePosition) {
+        if (autoUpdatePosition == AT_NOWHERE || autoUpdatePosition == AT_TOP
+                || autoUpdatePosition == AT_BOTTOM || autoUpdatePosition == AT_BOTH) {
+            mAutoUpdatePosition = autoUpdatePosition;
+        }
+    }
+
+    public void setAutoUpdateDistance(int autoUpdateDistance) {
+        mAutoUpdateDistance = autoUpdateDistance;
+    }
+
+    public void setAutoUpdateItemCount(int autoUpdateItemCount) {
+        mAutoUpdateItemCount = autoUpdateItemCount;
+    }
+
+    public void setUpdateTimeout(long updateTimeout) {
+        mUpdateTimeout = updateTimeout;
+    }
+
+    public void setFreshnessWindow(long freshnessWindow) {
+        mFreshnessWindow = freshnessWindow;
+    }
+
+    // the cursors of all layouts of the app share one preferences file, only a layout with a key set here
+    // keeps its cursor across process restarts, two layouts in different screens need distinct keys
+    public void setSyncCursorKey(@Nullable String syncCursorKey) {
+        if (syncCursorKey != null ? syncCursorKey.equals(mSyncCursorKey) : mSyncCursorKey == null) {
+            return;
+        }
+        mSyncCursorKey = syncCursorKey;
+        // the cursors are read again under the new key on the next update
+        mTopIndicator.mSyncCursorLoaded = false;
+        mBottomIndicator.mSyncCursorLoaded = false;
+    }
+
+    // takes effect the next time a spinner starts, only the spinner of a running update leaves the main thread,
+    // the settles stay on the spring driven from the main thread, a ViewPropertyAnimator would too since the
+    // end of a settle needs an end action and an animator with actions is not handed to the RenderThread
+    public void setRenderThreadAnimations(boolean renderThreadAnimations) {
+        mRenderThreadAnimations = renderThreadAnimations;
+    }
+
+    // looks the spinner trim up from a precomputed table instead of evaluating the interpolators every frame
+    public void setSpinnerKeyframes(boolean spinnerKeyframes) {
+        mSpinnerKeyframes = spinnerKeyframes;
+        if (mTopIndicator.mProgressDrawable != null) {
+            mTopIndicator.mProgressDrawable.setUseKeyframes(spinnerKeyframes);
+        }
+        if (mBottomIndicator.mProgressDrawable != null) {
+            mBottomIndicator.mProgressDrawable.setUseKeyframes(spinnerKeyframes);
+        }
+    }
+
+    // takes effect the next time a spinner starts
+    public void setSpinnerFrameRate(int spinnerFrameRate) {
+        if (spinnerFrameRate == SPINNER_FRAME_RATE_FULL || spinnerFrameRate == SPINNER_FRAME_RATE_ADAPTIVE
+                || spinnerFrameRate == SPINNER_FRAME_RATE_LOW_POWER) {
+            mSpinnerFrameRate = spinnerFrameRate;
+            if (mTopIndicator.mProgressDrawable != null) {
+                mTopIndicator.mProgressDrawable.setFrameRatePolicy(spinnerFrameRate);
+            }
+            if (mBottomIndicator.mProgressDrawable != null) {
+                mBottomIndicator.mProgressDrawable.setFrameRatePolicy(spinnerFrameRate);
+            }
+        }
+    }
+
+    public int getSuppressedUpdateCount() {
+        return mSuppressedUpdateCount;
+    }
+
+    public int getCoalescedUpdateCount() {
+        return mCoalescedUpdateCount;
+    }
+
+    public void setTouchPredictionEnabled(boolean enabled) {
+        if (enabled && mDragPredictor == null) {
+            mDragPredictor = new DragPredictor();
+        } else if (!enabled) {
+            mDragPredictor = null;
+        }
+    }
+
+    public int getCoalescedMoveCount() {
+        return mCoalescedMoveCount;
+    }
+
+    public int getHistoricalMoveSampleCount() {
+        return mHistoricalMoveSampleCount;
+    }
+
     public void setOnUpdateListener(OnUpdateListener listener) {
         mListener = listener;
     }
 
+    public void setOnUpdateRequestListener(OnUpdateRequestListener listener) {
+        mRequestListener = listener;
+    }
+
+    public void setOnUpdateOutcomeListener(OnUpdateOutcomeListener listener) {
+        mOutcomeListener = listener;
+    }
+
+    public void setOnUpdateCommitListener(OnUpdateCommitListener listener) {
+        mCommitListener = listener;
+    }
+
+    public void setOnSpeculativeUpdateListener(OnSpeculativeUpdateListener listener) {
+        mSpeculativeListener = listener;
+    }
+
+    public void setSpeculativeUpdateThreshold(float speculativeUpdateThreshold) {
+        mSpeculativeUpdateThreshold = speculativeUpdateThreshold;
+    }
+
+    public boolean isSpeculativeUpdateInFlight() {
+        return mSpeculativeUpdatePosition != AT_NOWHERE;
+    }
+
     public void setOnChildScrollCallback(@Nullable OnChildVerticalScrollCallback callback) {
         mChildVerticalScrollCallback = callback;
     }
 
+    private final class Indicator {
+
+        private final int mPosition;
+        // created on first use, see ensureCircleViewExists
+        private CircleImageView mCircleView;
+        // read from any thread by postProgress
+        private volatile MaterialProgressDrawable mProgressDrawable;
+        private final AtomicInteger mPostedProgress = new AtomicInteger(Float.floatToIntBits(0f));
+        private AnimatedVectorDrawable mSpinnerDrawable;
+        private int mIndex = -1;
+
+        private boolean mUpdating;
+        private boolean mUpdateDispatched;
+        private boolean mAutoUpdating;
+        private boolean mAutoUpdateSpent;
+        private int mAutoUpdateEdgeDistance;
+        private int mLastEdgeDistance = -1;
+        private boolean mConfirming;
+        private UpdateRequest mActiveRequest;
+        private final AtomicInteger mPostedControl = new AtomicInteger(CONTROL_NONE);
+        private boolean mDeterminate;
+        private final AtomicBoolean mPostedDeterminate = new AtomicBoolean();
+        private long mLastCompletedTime;
+        private boolean mSyncCursorLoaded;
+        private String mSyncToken;
+        private long mLastSyncTime;
+
+        private final CriticallyDampedSpring mSettleSpring = new CriticallyDampedSpring(CriticallyDampedSpring.DEFAULT_ANGULAR_FREQUENCY);
+        private boolean mSettling;
+        private long mLastSettleFrameNanos;
+
+        private final Choreographer.FrameCallback mSettleFrameCallback = new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                if (!mSettling) {
+                    return;
+                }
+                if (mLastSettleFrameNanos != 0) {
+                    mSettleSpring.step((frameTimeNanos - mLastSettleFrameNanos) / 1000000000f);
+                }
+                mLastSettleFrameNanos = frameTimeNanos;
+                final float position = mSettleSpring.getPosition();
+                final boolean overshotStart = (mPosition == AT_TOP && position < 0)
+                        || (mPosition == AT_BOTTOM && position > 0);
+                if (overshotStart || mSettleSpring.isAtRest(SETTLE_POSITION_TOLERANCE, SETTLE_VELOCITY_TOLERANCE)) {
+                    mSettling = false;
+                    moveChildViewVertically(Indicator.this, mSettleSpring.getTarget());
+                    onSettled(Indicator.this);
+                } else {
+                    moveChildViewVertically(Indicator.this, position);
+                    mChoreographer.postFrameCallback(this);
+                }
+            }
+        };
+
+        private final Runnable mUpdateTimeoutRunnable = new Runnable() {
+            @Override
+            public void run() {
+                if (mActiveRequest != null) {
+                    Log.w(LOG_TAG, "update at " + mPosition + " timed out after " + mUpdateTimeout + "ms");
+                    finishUpdateRequest(mActiveRequest, UPDATE_RESULT_TIMED_OUT);
+                }
+            }
+        };
+
+        private Runnable mPendingCommit;
+
+        private final Choreographer.FrameCallback mCommitFrameCallback = new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                if (mPendingCommit != null && Indicator.this != mDragIndicator) {
+                    runCommit(Indicator.this, COMMIT_BEFORE_SNAP_BACK, frameTimeNanos);
+                }
+                mChoreographer.postFrameCallback(mSnapBackFrameCallback);
+            }
+        };
+
+        private boolean mSnapBackPending;
+        // reached the end of a settle while rendering was paused, onSettled runs when it resumes
+        private boolean mSettledWhilePaused;
+
+        private final Choreographer.FrameCallback mSnapBackFrameCallback = new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                mSnapBackPending = false;
+                if (mUpdating) {
+                    // a newer update holds the indicator out
+                    return;
+                }
+                stopUpdatingInternal(Indicator.this);
+                if (mSettling && mLastSettleFrameNanos == 0) {
+                    // the spring starts at this frame, the next one moves the indicator by a full interval
+                    mLastSettleFrameNanos = frameTimeNanos;
+                }
+            }
+        };
+
+        private final Runnable mConfirmationRunnable = new Runnable() {
+            @Override
+            public void run() {
+                if (mConfirming) {
+                    stopUpdatingInternal(Indicator.this);
+                }
+            }
+        };
+
+        Indicator(int position) {
+            mPosition = position;
+        }
+
+        boolean isOut() {
+            return mCircleView != null && mCircleView.getTranslationY() != 0;
+        }
+    }
+
     public interface OnUpdateListener {
 
         void onUpdate(int updatingPosition);
     }
 
+    public interface OnUpdateRequestListener {
+
+        void onUpdateRequested(UpdateRequest request);
+    }
+
+    public interface OnUpdateOutcomeListener {
+
+        void onUpdateOutcome(UpdateRequest request, int result);
+    }
+
+    public interface OnUpdateCommitListener {
+
+        void onUpdateCommitted(int updatingPosition, int commitPhase, long frameTimeNanos);
+    }
+
+    // answers to a request that is no longer pending are ignored, so a late response can not stop a newer update
+    public static final class UpdateRequest {
+
+        // dropped once the request is answered, so a request kept by a callback does not retain the layout
+        private volatile SwipeUpdateLayout mLayout;
+        private final int mPosition;
+        private final long mRequestTime;
+        private final String mSyncToken;
+        private final long mLastSyncTime;
+        // read by the callbacks of the app on any thread
+        private volatile int mResult = UPDATE_RESULT_PENDING;
+
+        // answers given off the main thread, picked up by the next control drain
+        private static final int POSTING_RESULT = Integer.MIN_VALUE;
+        private final AtomicInteger mPostedResult = new AtomicInteger(UPDATE_RESULT_PENDING);
+        private String mPostedSyncToken;
+        private Runnable mPostedCommit;
+
+        UpdateRequest(SwipeUpdateLayout layout, int position, String syncToken, long lastSyncTime) {
+            mLayout = layout;
+            mPosition = position;
+            mRequestTime = SystemClock.uptimeMillis();
+            mSyncToken = syncToken;
+            mLastSyncTime = lastSyncTime;
+        }
+
+        public int getPosition() {
+            return mPosition;
+        }
+
+        public long getRequestTime() {
+            return mRequestTime;
+        }
+
+        public int getResult() {
+            return mResult;
+        }
+
+        // token handed to complete(String) by the last completed update at this position, null if there was none
+        @Nullable
+        public String getSyncToken() {
+            return mSyncToken;
+        }
+
+        // wall clock time of the last completed update at this position, 0 if there was none
+        public long getLastSyncTime() {
+            return mLastSyncTime;
+        }
+
+        public boolean isPending() {
+            return mResult == UPDATE_RESULT_PENDING;
+        }
+
+        @AnyThread
+        public void complete() {
+            answer(UPDATE_RESULT_COMPLETED, null, null);
+        }
+
+        @AnyThread
+        public void complete(String syncToken) {
+            answer(UPDATE_RESULT_COMPLETED, syncToken, null);
+        }
+
+        // the commit applying the new data runs right before the indicator snaps back or right after it stopped
+        @AnyThread
+        public void complete(String syncToken, Runnable commit) {
+            answer(UPDATE_RESULT_COMPLETED, syncToken, commit);
+        }
+
+        @AnyThread
+        public void fail() {
+            answer(UPDATE_RESULT_FAILED, null, null);
+        }
+
+        @AnyThread
+        public void cancel() {
+            answer(UPDATE_RESULT_CANCELLED, null, null);
+        }
+
+        private void answer(int result, String syncToken, Runnable commit) {
+            final SwipeUpdateLayout layout = mLayout;
+            if (layout == null) {
+                return;
+            }
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                layout.finishUpdateRequest(this, result, syncToken, commit);
+            } else if (mPostedResult.compareAndSet(UPDATE_RESULT_PENDING, POSTING_RESULT)) {
+                // only the first answer is kept, the result is set last to publish the fields with it
+                mPostedSyncToken = syncToken;
+                mPostedCommit = commit;
+                mPostedResult.set(result);
+                layout.scheduleControlDrain();
+            }
+        }
+    }
+
+    public interface OnSpeculativeUpdateListener {
+
+        void onSpeculativeUpdate(int updatingPosition);
+
+        // the speculative fetch now answers the request returned by getActiveUpdateRequest(updatingPosition),
+        // it times out and reports its outcome like a request handed to onUpdateRequested
+        void onSpeculativeUpdateCommitted(int updatingPosition);
+
+        void onSpeculativeUpdateCancelled(int updatingPosition);
+    }
+
     public interface OnChildVerticalScrollCallback {
 
         boolean canChildScrollUp(SwipeUpdateLayout parent, @Nullable View child);
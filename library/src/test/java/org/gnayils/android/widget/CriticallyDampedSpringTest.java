@@ -0,0 +1,90 @@
+package org.gnayils.android.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the spring against the analytic solution of a critically damped oscillator,
+ * x(t) = (x0 + (v0 + w * x0) * t) * e^(-w * t) around the target.
+ */
+public class CriticallyDampedSpringTest {
+
+    private static final float W = CriticallyDampedSpring.DEFAULT_ANGULAR_FREQUENCY;
+    private static final double[] TIMES = { 0.001, 0.016, 0.05, 0.1, 0.2, 0.3, 0.5, 1.0 };
+    private static final float POSITION_TOLERANCE = .01f;
+    private static final float VELOCITY_TOLERANCE = .5f;
+
+    @Test
+    public void singleStepMatchesAnalyticSolution() throws Exception {
+        final float[][] cases = {
+                // position, velocity, target
+                { 200f, 0f, 0f },
+                { 0f, 0f, 160f },
+                { 40f, 3000f, 160f },
+                { 120f, -2500f, 0f },
+                { -160f, 0f, -160f },
+        };
+        for (float[] c : cases) {
+            for (double t : TIMES) {
+                final CriticallyDampedSpring spring = new CriticallyDampedSpring(W);
+                spring.set(c[0], c[1], c[2]);
+                spring.step((float) t);
+                assertEquals("position at " + t, position(c[0], c[1], c[2], t), spring.getPosition(), POSITION_TOLERANCE);
+                assertEquals("velocity at " + t, velocity(c[0], c[1], c[2], t), spring.getVelocity(), VELOCITY_TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void frameStepsMatchAnalyticSolution() throws Exception {
+        // 60Hz, 90Hz, 120Hz and an uneven cadence all land on the same curve
+        final float[][] cadences = {
+                { 1 / 60f }, { 1 / 90f }, { 1 / 120f }, { 1 / 60f, 1 / 30f, 1 / 120f, 1 / 45f },
+        };
+        for (float[] cadence : cadences) {
+            final CriticallyDampedSpring spring = new CriticallyDampedSpring(W);
+            spring.set(0f, 2000f, 160f);
+            double t = 0;
+            for (int i = 0; t < 0.6; i++) {
+                final float dt = cadence[i % cadence.length];
+                spring.step(dt);
+                t += dt;
+                assertEquals("position at " + t, position(0f, 2000f, 160f, t), spring.getPosition(), POSITION_TOLERANCE);
+                assertEquals("velocity at " + t, velocity(0f, 2000f, 160f, t), spring.getVelocity(), VELOCITY_TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void comesToRestWithoutOvershootFromRest() throws Exception {
+        final CriticallyDampedSpring spring = new CriticallyDampedSpring(W);
+        spring.set(160f, 0f, 0f);
+        for (int i = 0; i < 60; i++) {
+            spring.step(1 / 60f);
+            // critically damped and released from rest, it never crosses the target
+            assertTrue(spring.getPosition() >= 0);
+        }
+        assertTrue(spring.isAtRest(.5f, 20f));
+    }
+
+    @Test
+    public void nonPositiveStepIsIgnored() throws Exception {
+        final CriticallyDampedSpring spring = new CriticallyDampedSpring(W);
+        spring.set(10f, 5f, 0f);
+        spring.step(0f);
+        spring.step(-1f);
+        assertEquals(10f, spring.getPosition(), 0f);
+        assertEquals(5f, spring.getVelocity(), 0f);
+    }
+
+    private static double position(double x, double v, double target, double t) {
+        final double x0 = x - target;
+        return target + (x0 + (v + W * x0) * t) * Math.exp(-W * t);
+    }
+
+    private static double velocity(double x, double v, double target, double t) {
+        final double x0 = x - target;
+        return (v - W * (v + W * x0) * t) * Math.exp(-W * t);
+    }
+}
@@ -0,0 +1,100 @@
+package org.gnayils.android.widget;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays a synthetic pull, sampled like a touch screen and rendered like the layout does, and
+ * compares how far the drawn position trails the finger with and without prediction.
+ */
+public class DragPredictorTest {
+
+    /** Touch sampling interval, 120Hz digitizer. */
+    private static final double TOUCH_INTERVAL_MS = 8.0;
+    /** Display refresh interval, 60Hz. */
+    private static final double FRAME_INTERVAL_MS = 1000.0 / 60;
+    /** MAX_PREDICTION_OFFSET of the layout at xxhdpi. */
+    private static final float MAX_OFFSET = 48f;
+    private static final float TOUCH_NOISE = .5f;
+
+    private static final double PULL_DISTANCE = 400;
+    private static final double PULL_DURATION_MS = 500;
+    private static final double HOLD_DURATION_MS = 300;
+
+    @Test
+    public void predictionReducesLagDuringPull() throws Exception {
+        final Replay replay = replay(PULL_DURATION_MS);
+        assertTrue("lag " + replay.mPredictedLag + "px with prediction, " + replay.mUnpredictedLag + "px without",
+                replay.mPredictedLag < replay.mUnpredictedLag * .5);
+    }
+
+    @Test
+    public void overshootIsBoundedAndCorrectedAfterStop() throws Exception {
+        final Replay replay = replay(PULL_DURATION_MS + HOLD_DURATION_MS);
+        assertTrue("largest offset " + replay.mMaxOffset, replay.mMaxOffset <= MAX_OFFSET);
+        // once the finger rests, the predicted position falls back onto it within noise
+        assertEquals(0, replay.mOffsetAtEnd, 2 * TOUCH_NOISE);
+    }
+
+    @Test
+    public void notEnoughSamplesPredictsNothing() throws Exception {
+        final DragPredictor predictor = new DragPredictor();
+        assertEquals(0f, predictor.predictOffset(100, MAX_OFFSET), 0f);
+        predictor.addSample(100, 10f);
+        assertEquals(0f, predictor.predictOffset(116, MAX_OFFSET), 0f);
+        predictor.reset();
+        predictor.addSample(100, 10f);
+        predictor.addSample(300, 50f);
+        // samples further apart than the fit horizon do not make a line
+        assertEquals(0f, predictor.predictOffset(316, MAX_OFFSET), 0f);
+    }
+
+    /** Minimum jerk pull from 0 to PULL_DISTANCE, then held still. */
+    private static double fingerAt(double timeMs) {
+        final double s = Math.min(1, Math.max(0, timeMs / PULL_DURATION_MS));
+        return PULL_DISTANCE * s * s * s * (10 - 15 * s + 6 * s * s);
+    }
+
+    private static Replay replay(double durationMs) {
+        final Random random = new Random(42);
+        final DragPredictor predictor = new DragPredictor();
+        final Replay replay = new Replay();
+        double nextSampleTime = 0;
+        float lastSample = 0;
+        double predictedLagSum = 0;
+        double unpredictedLagSum = 0;
+        int frames = 0;
+        for (double frameTime = FRAME_INTERVAL_MS; frameTime <= durationMs; frameTime += FRAME_INTERVAL_MS) {
+            // the samples taken since the last frame arrive batched in one event
+            while (nextSampleTime <= frameTime) {
+                lastSample = (float) (fingerAt(nextSampleTime) + (random.nextFloat() * 2 - 1) * TOUCH_NOISE);
+                predictor.addSample(Math.round(nextSampleTime), lastSample);
+                nextSampleTime += TOUCH_INTERVAL_MS;
+            }
+            // the frame is shown one vsync after its frame time
+            final double displayTime = frameTime + FRAME_INTERVAL_MS;
+            final float offset = predictor.predictOffset(Math.round(displayTime), MAX_OFFSET);
+            final double finger = fingerAt(displayTime);
+            if (frameTime <= PULL_DURATION_MS) {
+                unpredictedLagSum += Math.abs(finger - lastSample);
+                predictedLagSum += Math.abs(finger - (lastSample + offset));
+                frames++;
+            }
+            replay.mMaxOffset = Math.max(replay.mMaxOffset, Math.abs(offset));
+            replay.mOffsetAtEnd = offset;
+        }
+        replay.mUnpredictedLag = unpredictedLagSum / frames;
+        replay.mPredictedLag = predictedLagSum / frames;
+        return replay;
+    }
+
+    private static final class Replay {
+        double mUnpredictedLag;
+        double mPredictedLag;
+        float mMaxOffset;
+        float mOffsetAtEnd;
+    }
+}
@@ -0,0 +1,61 @@
+package org.gnayils.android.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the primitive color blend of the ring against the boxed ArgbEvaluator it replaced.
+ */
+public class RingColorTest {
+
+    private static final int[] COLORS = {
+            0xFF000000, 0xFFFFFFFF, 0xFFF44336, 0xFF4CAF50, 0xFF2196F3,
+            0x80FF9800, 0x00000000, 0x7F123456, 0xFFFEDCBA
+    };
+    private static final int FRACTION_STEPS = 64;
+
+    @Test
+    public void blendMatchesArgbEvaluator() throws Exception {
+        for (int start : COLORS) {
+            for (int end : COLORS) {
+                for (int i = 0; i <= FRACTION_STEPS; i++) {
+                    final float fraction = (float) i / FRACTION_STEPS;
+                    assertEquals(String.format("%08x to %08x at %f", start, end, fraction),
+                            evaluate(fraction, start, end),
+                            MaterialProgressDrawable.evaluateColorChange(fraction, start, end));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void blendKeepsEndpoints() throws Exception {
+        for (int start : COLORS) {
+            for (int end : COLORS) {
+                assertEquals(start, MaterialProgressDrawable.evaluateColorChange(0f, start, end));
+                assertEquals(end, MaterialProgressDrawable.evaluateColorChange(1f, start, end));
+            }
+        }
+    }
+
+    /** The blend as android.animation.ArgbEvaluator computed it before, on boxed values. */
+    private static Object evaluate(float fraction, Object startValue, Object endValue) {
+        int startInt = (Integer) startValue;
+        int startA = (startInt >> 24) & 0xff;
+        int startR = (startInt >> 16) & 0xff;
+        int startG = (startInt >> 8) & 0xff;
+        int startB = startInt & 0xff;
+
+        int endInt = (Integer) endValue;
+        int endA = (endInt >> 24) & 0xff;
+        int endR = (endInt >> 16) & 0xff;
+        int endG = (endInt >> 8) & 0xff;
+        int endB = endInt & 0xff;
+
+        return (startA + (int) (fraction * (endA - startA))) << 24
+                | (startR + (int) (fraction * (endR - startR))) << 16
+                | (startG + (int) (fraction * (endG - startG))) << 8
+                | (startB + (int) (fraction * (endB - startB)));
+    }
+}
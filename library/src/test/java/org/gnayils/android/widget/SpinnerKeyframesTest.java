@@ -0,0 +1,51 @@
+package org.gnayils.android.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the keyframe table of the spinner with the trim math it replaces.
+ */
+public class SpinnerKeyframesTest {
+
+    /** Densest screen bucket, xxxhdpi, where a trim error is the most visible. */
+    private static final float MAX_DENSITY = 4f;
+    private static final float PIXEL_TOLERANCE = .5f;
+    /** Not a multiple of the keyframe spacing, so most samples fall between two keyframes. */
+    private static final int SAMPLES = 997;
+
+    @Test
+    public void defaultTableMatchesLiveMath() throws Exception {
+        assertTableMatchesLiveMath(MaterialProgressDrawable.DEFAULT,
+                MaterialProgressDrawable.STROKE_WIDTH, MaterialProgressDrawable.CENTER_RADIUS);
+    }
+
+    @Test
+    public void largeTableMatchesLiveMath() throws Exception {
+        assertTableMatchesLiveMath(MaterialProgressDrawable.LARGE,
+                MaterialProgressDrawable.STROKE_WIDTH_LARGE, MaterialProgressDrawable.CENTER_RADIUS_LARGE);
+    }
+
+    @Test
+    public void tableIsBuiltOncePerSize() throws Exception {
+        assertSame(MaterialProgressDrawable.getKeyframes(MaterialProgressDrawable.DEFAULT),
+                MaterialProgressDrawable.getKeyframes(MaterialProgressDrawable.DEFAULT));
+    }
+
+    private static void assertTableMatchesLiveMath(int size, float strokeWidth, float centerRadius) {
+        final float[] keyframes = MaterialProgressDrawable.getKeyframes(size);
+        final float arc = MaterialProgressDrawable.getTrimArc(strokeWidth, centerRadius);
+        // a trim is a fraction of the circle, the error shows along the circumference
+        final float pixelsPerTrim = (float) (2 * Math.PI * centerRadius * MAX_DENSITY);
+        for (int i = 0; i <= SAMPLES; i++) {
+            final float time = (float) i / SAMPLES;
+            final float startError = MaterialProgressDrawable.lookupKeyframe(keyframes, time, 0)
+                    - MaterialProgressDrawable.getStartTrimOffset(time, arc);
+            final float endError = MaterialProgressDrawable.lookupKeyframe(keyframes, time, 1)
+                    - MaterialProgressDrawable.getEndTrimOffset(time, arc);
+            assertEquals("start trim at " + time, 0, startError * pixelsPerTrim, PIXEL_TOLERANCE);
+            assertEquals("end trim at " + time, 0, endError * pixelsPerTrim, PIXEL_TOLERANCE);
+        }
+    }
+}